@@ -0,0 +1,28 @@
+package com.noteshare.benchmark;
+
+import org.openjdk.jmh.Main;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// JMH入口：未指定结果格式时默认输出JSON到 jmh-results/<时间>.json
+public class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> jmhArgs = new ArrayList<>(Arrays.asList(args));
+        if (!jmhArgs.contains("-rf") && !jmhArgs.contains("-h") && !jmhArgs.contains("-l")) {
+            Files.createDirectories(Paths.get("jmh-results"));
+            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+            jmhArgs.addAll(List.of("-rf", "json", "-rff", "jmh-results/" + timestamp + ".json"));
+        }
+        Main.main(jmhArgs.toArray(new String[0]));
+    }
+}
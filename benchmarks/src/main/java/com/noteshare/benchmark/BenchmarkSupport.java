@@ -0,0 +1,54 @@
+package com.noteshare.benchmark;
+
+import com.noteshare.dto.NoteResponse;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+public final class BenchmarkSupport {
+
+    private BenchmarkSupport() {
+    }
+
+    // 基准里直接new出来的Spring组件，用反射填充@Autowired/@Value字段
+    public static void inject(Object target, String field, Object value) {
+        try {
+            Field f = target.getClass().getDeclaredField(field);
+            f.setAccessible(true);
+            f.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // 模拟投影查询返回的列表行，按创建时间倒序
+    public static List<NoteResponse> noteRows(int count) {
+        Random random = new Random(42);
+        LocalDateTime now = LocalDateTime.of(2024, 6, 1, 12, 0);
+        List<NoteResponse> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long id = count - i;
+            rows.add(new NoteResponse(id, "高等数学第" + id + "章复习笔记", "期末复习用，包含例题和公式推导 #" + id,
+                    "chapter-" + id + ".pdf", "pdf", 200_000L + random.nextInt(5_000_000),
+                    random.nextInt(500), now.minusMinutes(i), "高等数学", "student" + (id % 300), id % 300));
+        }
+        return rows;
+    }
+
+    public static void deleteRecursively(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.noteshare.cache;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// 用户名过滤器：查询未注册用户名的耗时，辅助计数器给出实测误判次数（falsePositive/查询次数即误判率），
+// 内存占用为 users * -ln(fpp) / ln(2)^2 / 8 字节
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BloomFilterBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int users;
+
+    @Param({"0.01", "0.001"})
+    private double fpp;
+
+    private BloomFilter filter;
+
+    @Setup
+    public void setUp() {
+        filter = new BloomFilter(users, fpp);
+        for (int i = 0; i < users; i++) {
+            filter.put("student" + i);
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Lookups {
+        public long falsePositive;
+        public long lookup;
+        private long next;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            falsePositive = 0;
+            lookup = 0;
+        }
+    }
+
+    @Benchmark
+    public boolean lookupAbsent(Lookups lookups) {
+        boolean hit = filter.mightContain("newcomer" + lookups.next++);
+        lookups.lookup++;
+        if (hit) {
+            lookups.falsePositive++;
+        }
+        return hit;
+    }
+}
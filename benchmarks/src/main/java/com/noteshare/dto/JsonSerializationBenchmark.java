@@ -0,0 +1,84 @@
+package com.noteshare.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.noteshare.benchmark.BenchmarkSupport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+// ApiResponse包装笔记列表的序列化，按Accept可选的三种编码（JSON/Smile/CBOR）各测一遍，
+// ObjectMapper配置与Spring MVC对应消息转换器一致；gzip用例再加上响应压缩的开销。
+// 启动时打印每种编码压缩前后的字节数
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    @Param({"20", "100", "1000", "10000"})
+    private int notes;
+
+    @Param({"json", "smile", "cbor"})
+    private String format;
+
+    private ObjectMapper objectMapper;
+    private ApiResponse response;
+
+    @Setup
+    public void setUp() {
+        objectMapper = mapper(format);
+        List<NoteResponse> items = BenchmarkSupport.noteRows(notes);
+        for (NoteResponse item : items) {
+            item.setDownloadUrl("/api/notes/" + item.getId() + "/download");
+        }
+        response = ApiResponse.success("获取笔记列表成功", new NotePageResponse(items, "MjAyNC0wNi0wMVQxMjowMHw0Mg", true));
+        try {
+            System.out.printf("%n%s, %d条: %d 字节, gzip后 %d 字节%n",
+                    format, notes, serializeList().length, serializeListGzip().length);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeList() throws Exception {
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    // Tomcat压缩使用默认压缩级别，这里保持一致
+    @Benchmark
+    public byte[] serializeListGzip() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            objectMapper.writeValue(gzip, response);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static ObjectMapper mapper(String format) {
+        switch (format) {
+            case "smile":
+                return Jackson2ObjectMapperBuilder.smile().build();
+            case "cbor":
+                return Jackson2ObjectMapperBuilder.cbor().build();
+            default:
+                return Jackson2ObjectMapperBuilder.json().build();
+        }
+    }
+}
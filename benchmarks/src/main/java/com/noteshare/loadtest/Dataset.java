@@ -0,0 +1,58 @@
+package com.noteshare.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// 压测前从服务端读取课程id和最大笔记id，用于生成请求参数
+class Dataset {
+
+    final int users;
+    final String password;
+    private final List<Long> courseIds = new ArrayList<>();
+    private long maxNoteId;
+
+    private Dataset(int users, String password) {
+        this.users = users;
+        this.password = password;
+    }
+
+    static Dataset load(HttpClient client, String baseUrl, ObjectMapper objectMapper, int users, String password)
+            throws IOException, InterruptedException {
+        Dataset dataset = new Dataset(users, password);
+        for (JsonNode course : get(client, baseUrl + "/api/courses/list", objectMapper).path("data")) {
+            dataset.courseIds.add(course.path("id").asLong());
+        }
+        JsonNode latest = get(client, baseUrl + "/api/notes/list?size=1", objectMapper).path("data").path("items");
+        dataset.maxNoteId = latest.size() > 0 ? latest.get(0).path("id").asLong() : 0;
+        if (dataset.courseIds.isEmpty() || dataset.maxNoteId == 0) {
+            throw new IllegalStateException("服务端没有课程或笔记，请用perf profile启动以生成压测数据");
+        }
+        return dataset;
+    }
+
+    long randomCourse(Random random) {
+        return courseIds.get(random.nextInt(courseIds.size()));
+    }
+
+    // 幂律分布：id越小的笔记越热门，约两成笔记占八成下载
+    long popularNote(Random random) {
+        double rank = Math.pow(random.nextDouble(), 3);
+        return 1 + (long) (rank * maxNoteId);
+    }
+
+    private static JsonNode get(HttpClient client, String url, ObjectMapper objectMapper)
+            throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = client.send(HttpRequest.newBuilder(URI.create(url)).build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        return objectMapper.readTree(response.body());
+    }
+}
@@ -0,0 +1,231 @@
+package com.noteshare.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// 实时推送（/api/notes/feed）浸泡测试：对运行中的服务建立大量SSE连接并保持一段时间，
+// 期间按固定速率下载笔记产生下载次数变化事件，统计收到的事件、reset和中途断开的连接，
+// 并用建立连接前后服务端堆占用的差值估算每GB堆能保持的连接数。客户端用一个NIO线程持有全部连接
+//
+//   java -cp benchmarks/target/benchmarks.jar com.noteshare.loadtest.FeedSoakTest \
+//       --url=http://localhost:8080 --connections=5000 --hold=60 --download-rate=20 --pid=<服务进程id>
+//
+// 传入pid时取堆占用前先用 jcmd <pid> GC.run 做一次Full GC，否则差值包含未回收的垃圾，只能作参考
+public class FeedSoakTest {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        URI base = URI.create(options.getOrDefault("url", "http://localhost:8080"));
+        int connections = Integer.parseInt(options.getOrDefault("connections", "5000"));
+        int hold = Integer.parseInt(options.getOrDefault("hold", "60"));
+        int downloadRate = Integer.parseInt(options.getOrDefault("download-rate", "20"));
+        String pid = options.get("pid");
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        HttpClient client = HttpClient.newHttpClient();
+        ServerMetrics metrics = new ServerMetrics(client, base.toString(), objectMapper);
+        Dataset dataset = Dataset.load(client, base.toString(), objectMapper, 0, null);
+
+        double heapBefore = heapUsed(metrics, pid);
+        Selector selector = Selector.open();
+        Random random = new Random(42);
+        long connectStart = System.nanoTime();
+        for (int i = 0; i < connections; i++) {
+            String path = random.nextInt(5) == 0 ? "/api/notes/feed"
+                    : "/api/notes/feed?courseId=" + dataset.randomCourse(random);
+            SocketChannel channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.connect(new InetSocketAddress(base.getHost(), base.getPort()));
+            channel.register(selector, SelectionKey.OP_CONNECT, new Connection(path, base.getAuthority()));
+            // 边建立边处理，避免一次发起太多连接超出服务端的accept队列
+            if (i % 100 == 99) {
+                poll(selector, 50);
+            }
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (countEstablished(selector) < connections && System.nanoTime() < deadline) {
+            poll(selector, 100);
+        }
+        double connectSeconds = (System.nanoTime() - connectStart) / 1e9;
+        int established = countEstablished(selector);
+        System.out.printf("已建立 %d/%d 个连接，用时 %.1fs%n", established, connections, connectSeconds);
+
+        double heapAfter = heapUsed(metrics, pid);
+        Double serverConnections = metrics.read("note.feed.connections");
+
+        // 保持连接期间按固定速率下载，计数写回后产生DOWNLOADS事件
+        Thread downloader = new Thread(() -> download(client, base, dataset, downloadRate, hold));
+        downloader.setDaemon(true);
+        downloader.start();
+        long stopAt = System.nanoTime() + TimeUnit.SECONDS.toNanos(hold);
+        while (System.nanoTime() < stopAt) {
+            poll(selector, 200);
+        }
+
+        long frames = 0;
+        long resets = 0;
+        long bytes = 0;
+        int open = 0;
+        int withEvents = 0;
+        for (SelectionKey key : selector.keys()) {
+            Connection connection = (Connection) key.attachment();
+            frames += connection.frames;
+            resets += connection.resets;
+            bytes += connection.bytes;
+            if (connection.established && !connection.closed) {
+                open++;
+            }
+            if (connection.frames > 0) {
+                withEvents++;
+            }
+            key.channel().close();
+        }
+        selector.close();
+
+        double heapPerConnection = established == 0 ? 0 : (heapAfter - heapBefore) / established;
+        System.out.printf("服务端统计的连接数: %s%n", serverConnections == null ? "-" : String.format("%.0f", serverConnections));
+        System.out.printf("保持%ds后仍打开: %d, 收到事件的连接: %d, 事件帧: %d, reset: %d, 接收字节: %d%n",
+                hold, open, withEvents, frames, resets, bytes);
+        System.out.printf("服务端堆占用: 建立前 %.1f MB, 建立后 %.1f MB, 每连接 %.1f KB, 每GB堆约 %.0f 个连接%s%n",
+                heapBefore / 1048576, heapAfter / 1048576, heapPerConnection / 1024,
+                heapPerConnection > 0 ? (1L << 30) / heapPerConnection : 0, pid == null ? "（未传pid，未先GC）" : "");
+    }
+
+    private static void poll(Selector selector, long timeoutMillis) throws IOException {
+        selector.select(timeoutMillis);
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+            Connection connection = (Connection) key.attachment();
+            SocketChannel channel = (SocketChannel) key.channel();
+            try {
+                if (key.isConnectable()) {
+                    channel.finishConnect();
+                    channel.write(ByteBuffer.wrap(connection.request));
+                    key.interestOps(SelectionKey.OP_READ);
+                } else if (key.isReadable()) {
+                    buffer.clear();
+                    int n = channel.read(buffer);
+                    if (n < 0) {
+                        connection.closed = true;
+                        key.cancel();
+                        channel.close();
+                        continue;
+                    }
+                    connection.read(new String(buffer.array(), 0, n, StandardCharsets.UTF_8), n);
+                }
+            } catch (IOException e) {
+                connection.closed = true;
+                key.cancel();
+                channel.close();
+            }
+        }
+    }
+
+    private static int countEstablished(Selector selector) {
+        int count = 0;
+        for (SelectionKey key : selector.keys()) {
+            Connection connection = (Connection) key.attachment();
+            if (connection.established && !connection.closed) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void download(HttpClient client, URI base, Dataset dataset, int rate, int seconds) {
+        if (rate <= 0) {
+            return;
+        }
+        Random random = new Random();
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long next = System.nanoTime();
+        long stopAt = next + TimeUnit.SECONDS.toNanos(seconds);
+        while (next < stopAt) {
+            URI uri = base.resolve("/api/notes/" + dataset.popularNote(random) + "/download");
+            try {
+                client.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.discarding());
+                next += interval;
+                TimeUnit.NANOSECONDS.sleep(Math.max(0, next - System.nanoTime()));
+            } catch (IOException e) {
+                next += interval;
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    // 传入pid时先Full GC，取回收后的堆占用
+    private static double heapUsed(ServerMetrics metrics, String pid) throws IOException, InterruptedException {
+        if (pid != null) {
+            new ProcessBuilder("jcmd", pid, "GC.run").redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD).start().waitFor();
+        }
+        Double used = metrics.read("jvm.memory.used?tag=area:heap");
+        if (used == null) {
+            throw new IllegalStateException("无法读取服务端堆占用，确认 /actuator/metrics 已开放");
+        }
+        return used;
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("参数格式应为 --name=value: " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        return options;
+    }
+
+    private static class Connection {
+        private final byte[] request;
+        private boolean established;
+        private boolean closed;
+        private long frames;
+        private long resets;
+        private long bytes;
+
+        private Connection(String path, String host) {
+            this.request = ("GET " + path + " HTTP/1.1\r\nHost: " + host + "\r\nAccept: text/event-stream\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+        }
+
+        // 服务端每帧一次写入，按块内的事件名计数即可
+        private void read(String chunk, int n) {
+            bytes += n;
+            if (!established && chunk.startsWith("HTTP/1.1 200")) {
+                established = true;
+            }
+            frames += count(chunk, "event: notes");
+            resets += count(chunk, "event: reset");
+        }
+
+        private static int count(String text, String token) {
+            int count = 0;
+            for (int i = text.indexOf(token); i >= 0; i = text.indexOf(token, i + token.length())) {
+                count++;
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.noteshare.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// 按接口记录响应时间（微秒）、错误数和被限流数
+class LatencyRecorder {
+
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+    private final Map<String, Recorder> recorders = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> rejected = new ConcurrentHashMap<>();
+
+    void record(String endpoint, long startNanos, int status) {
+        long micros = Math.min(MAX_LATENCY_MICROS, (System.nanoTime() - startNanos) / 1000);
+        recorders.computeIfAbsent(endpoint, k -> new Recorder(MAX_LATENCY_MICROS, 3)).recordValue(micros);
+        if (status == 429) {
+            rejected.computeIfAbsent(endpoint, k -> new LongAdder()).increment();
+        } else if (status >= 400) {
+            errors.computeIfAbsent(endpoint, k -> new LongAdder()).increment();
+        }
+    }
+
+    void error(String endpoint) {
+        errors.computeIfAbsent(endpoint, k -> new LongAdder()).increment();
+    }
+
+    // 取出并清零当前统计，预热阶段结束时也用它丢弃预热数据
+    Map<String, Object> drain(double seconds) {
+        Map<String, Object> result = new TreeMap<>();
+        for (Map.Entry<String, Recorder> entry : recorders.entrySet()) {
+            Histogram histogram = entry.getValue().getIntervalHistogram();
+            if (histogram.getTotalCount() == 0) {
+                continue;
+            }
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("count", histogram.getTotalCount());
+            stats.put("throughput", Math.round(histogram.getTotalCount() / seconds * 10) / 10.0);
+            stats.put("errors", sumAndReset(errors, entry.getKey()));
+            stats.put("rejected", sumAndReset(rejected, entry.getKey()));
+            stats.put("p50Ms", millis(histogram.getValueAtPercentile(50)));
+            stats.put("p90Ms", millis(histogram.getValueAtPercentile(90)));
+            stats.put("p99Ms", millis(histogram.getValueAtPercentile(99)));
+            stats.put("p999Ms", millis(histogram.getValueAtPercentile(99.9)));
+            stats.put("maxMs", millis(histogram.getMaxValue()));
+            result.put(entry.getKey(), stats);
+        }
+        return result;
+    }
+
+    private long sumAndReset(Map<String, LongAdder> counters, String endpoint) {
+        LongAdder counter = counters.get(endpoint);
+        return counter == null ? 0 : counter.sumThenReset();
+    }
+
+    private double millis(long micros) {
+        return Math.round(micros / 10.0) / 100.0;
+    }
+}
@@ -0,0 +1,134 @@
+package com.noteshare.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// 端到端压测：对运行中的服务（通常以perf profile启动）按场景和并发数施压，
+// 输出每个接口的吞吐量和延迟分位数，结果同时写入 loadtest-results/<label>-<时间>.json
+//
+//   java -cp benchmarks/target/benchmarks.jar com.noteshare.loadtest.LoadTestMain \
+//       --url=http://localhost:8080 --scenarios=browse,search,download,upload,login,mixed \
+//       --concurrency=16,64,256 --warmup=10 --duration=30 --label=platform
+//
+// 对比线程模式时，分别以默认模式和 virtual profile 启动服务，用不同的label各跑一次
+public class LoadTestMain {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        String baseUrl = options.getOrDefault("url", "http://localhost:8080");
+        String label = options.getOrDefault("label", "run");
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "10"));
+        int duration = Integer.parseInt(options.getOrDefault("duration", "30"));
+        int users = Integer.parseInt(options.getOrDefault("users", "500"));
+        String password = options.getOrDefault("password", "perf-password");
+
+        ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        HttpClient client = HttpClient.newHttpClient();
+        Dataset dataset = Dataset.load(client, baseUrl, objectMapper, users, password);
+        ServerMetrics metrics = new ServerMetrics(client, baseUrl, objectMapper);
+
+        List<Map<String, Object>> runs = new ArrayList<>();
+        for (String name : options.getOrDefault("scenarios", "browse,search,download,mixed").split(",")) {
+            Scenario scenario = Scenario.valueOf(name.trim().toUpperCase(Locale.ROOT));
+            for (String level : options.getOrDefault("concurrency", "16,64").split(",")) {
+                int concurrency = Integer.parseInt(level.trim());
+                System.out.printf("%n== %s, 并发%d (预热%ds, 测量%ds)%n", scenario, concurrency, warmup, duration);
+                Map<String, Object> run = runScenario(scenario, concurrency, warmup, duration,
+                        baseUrl, objectMapper, dataset, metrics);
+                runs.add(run);
+                print(run);
+            }
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("label", label);
+        report.put("url", baseUrl);
+        report.put("startedAt", LocalDateTime.now().toString());
+        report.put("runs", runs);
+        Path dir = Files.createDirectories(Paths.get("loadtest-results"));
+        Path file = dir.resolve(label + "-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".json");
+        objectMapper.writeValue(file.toFile(), report);
+        System.out.println("\n结果已写入 " + file);
+    }
+
+    private static Map<String, Object> runScenario(Scenario scenario, int concurrency, int warmup, int duration,
+                                                   String baseUrl, ObjectMapper objectMapper, Dataset dataset,
+                                                   ServerMetrics metrics) throws InterruptedException {
+        LatencyRecorder recorder = new LatencyRecorder();
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        long stopAt = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmup + duration);
+        for (int i = 0; i < concurrency; i++) {
+            VirtualUser user = new VirtualUser(baseUrl, objectMapper, recorder, dataset, i);
+            executor.execute(() -> {
+                try {
+                    while (System.nanoTime() < stopAt) {
+                        user.run(scenario);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        Thread.sleep(TimeUnit.SECONDS.toMillis(warmup));
+        recorder.drain(warmup);
+        Map<String, Double> before = metrics.snapshot();
+        long start = System.nanoTime();
+        Thread.sleep(TimeUnit.SECONDS.toMillis(duration));
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Map<String, Object> endpoints = recorder.drain(seconds);
+        Map<String, Double> after = metrics.snapshot();
+
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+
+        Map<String, Object> run = new LinkedHashMap<>();
+        run.put("scenario", scenario.name().toLowerCase(Locale.ROOT));
+        run.put("concurrency", concurrency);
+        run.put("durationSeconds", Math.round(seconds * 10) / 10.0);
+        run.put("endpoints", endpoints);
+        run.put("server", ServerMetrics.delta(before, after, seconds));
+        return run;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void print(Map<String, Object> run) {
+        System.out.printf("%-16s %9s %10s %7s %7s %9s %9s %9s %9s %9s%n",
+                "endpoint", "count", "req/s", "errors", "429", "p50(ms)", "p90(ms)", "p99(ms)", "p99.9(ms)", "max(ms)");
+        Map<String, Map<String, Object>> endpoints = (Map<String, Map<String, Object>>) run.get("endpoints");
+        for (Map.Entry<String, Map<String, Object>> entry : endpoints.entrySet()) {
+            Map<String, Object> s = entry.getValue();
+            System.out.printf("%-16s %9d %10.1f %7d %7d %9.2f %9.2f %9.2f %9.2f %9.2f%n", entry.getKey(),
+                    s.get("count"), s.get("throughput"), s.get("errors"), s.get("rejected"),
+                    s.get("p50Ms"), s.get("p90Ms"), s.get("p99Ms"), s.get("p999Ms"), s.get("maxMs"));
+        }
+        System.out.println("server: " + run.get("server"));
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("参数格式应为 --name=value: " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        return options;
+    }
+}
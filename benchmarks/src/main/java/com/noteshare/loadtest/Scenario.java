@@ -0,0 +1,37 @@
+package com.noteshare.loadtest;
+
+import java.util.Random;
+
+// 压测场景，每个场景是若干操作的加权组合
+enum Scenario {
+
+    BROWSE(100, 0, 0, 0, 0),
+    SEARCH(0, 100, 0, 0, 0),
+    DOWNLOAD(0, 0, 100, 0, 0),
+    UPLOAD(0, 0, 0, 100, 0),
+    // 撞库攻击混在正常登录中
+    LOGIN(0, 0, 0, 0, 100),
+    // 接近线上的访问比例：以浏览为主，上传很少
+    MIXED(60, 20, 15, 5, 0);
+
+    enum Action { BROWSE, SEARCH, DOWNLOAD, UPLOAD, LOGIN }
+
+    private final int[] weights;
+    private final int total;
+
+    Scenario(int browse, int search, int download, int upload, int login) {
+        this.weights = new int[]{browse, search, download, upload, login};
+        this.total = browse + search + download + upload + login;
+    }
+
+    Action pick(Random random) {
+        int value = random.nextInt(total);
+        for (int i = 0; i < weights.length; i++) {
+            value -= weights[i];
+            if (value < 0) {
+                return Action.values()[i];
+            }
+        }
+        throw new IllegalStateException();
+    }
+}
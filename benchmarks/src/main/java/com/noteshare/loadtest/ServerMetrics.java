@@ -0,0 +1,80 @@
+package com.noteshare.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// 读取服务端Actuator指标，场景前后各取一次求差值：
+// 数据库连接借出次数近似数据库往返次数，用于对比缓存开启前后的数据库压力
+class ServerMetrics {
+
+    private static final Map<String, String> METRICS = new LinkedHashMap<>();
+
+    static {
+        METRICS.put("dbConnectionCheckouts", "hikaricp.connections.usage");
+        METRICS.put("noteListCacheHits", "cache.gets?tag=cache:noteLists&tag=result:hit");
+        METRICS.put("noteListCacheMisses", "cache.gets?tag=cache:noteLists&tag=result:miss");
+        METRICS.put("courseCacheHits", "cache.gets?tag=cache:courses&tag=result:hit");
+        METRICS.put("uploadsRejected", "note.upload.rejected");
+        METRICS.put("passwordHashRejected", "auth.password.hash.rejected");
+    }
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final ObjectMapper objectMapper;
+
+    ServerMetrics(HttpClient client, String baseUrl, ObjectMapper objectMapper) {
+        this.client = client;
+        this.baseUrl = baseUrl;
+        this.objectMapper = objectMapper;
+    }
+
+    Map<String, Double> snapshot() throws InterruptedException {
+        Map<String, Double> values = new LinkedHashMap<>();
+        for (Map.Entry<String, String> metric : METRICS.entrySet()) {
+            values.put(metric.getKey(), read(metric.getValue()));
+        }
+        return values;
+    }
+
+    static Map<String, Object> delta(Map<String, Double> before, Map<String, Double> after, double seconds) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Double> entry : after.entrySet()) {
+            Double start = before.get(entry.getKey());
+            if (entry.getValue() == null || start == null) {
+                continue;
+            }
+            double delta = entry.getValue() - start;
+            result.put(entry.getKey(), delta);
+            result.put(entry.getKey() + "PerSecond", Math.round(delta / seconds * 10) / 10.0);
+        }
+        return result;
+    }
+
+    // 指标不存在（如缓存尚未被访问过）时返回null；计数类取COUNT，否则取第一个值
+    Double read(String metric) throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/metrics/" + metric)).build();
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                return null;
+            }
+            JsonNode measurements = objectMapper.readTree(response.body()).path("measurements");
+            for (JsonNode measurement : measurements) {
+                if ("COUNT".equals(measurement.path("statistic").asText())) {
+                    return measurement.path("value").asDouble();
+                }
+            }
+            return measurements.size() > 0 ? measurements.get(0).path("value").asDouble() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.noteshare.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+// 一个模拟用户：独立的连接和登录令牌，循环执行场景中的操作，每个请求按接口计时
+class VirtualUser {
+
+    private static final String[] SEARCH_TERMS = {
+            "高等数学", "线性代数 复习", "期末", "习题答案", "数据结构", "操作系统 笔记", "真题", "物理",
+            "公式", "计算机网络", "数据库", "知识点总结", "编译", "英语", "lecture"};
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final ObjectMapper objectMapper;
+    private final LatencyRecorder recorder;
+    private final Dataset dataset;
+    private final Random random;
+    private final int userIndex;
+    private String accessToken;
+
+    VirtualUser(String baseUrl, ObjectMapper objectMapper, LatencyRecorder recorder, Dataset dataset, int userIndex) {
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        this.baseUrl = baseUrl;
+        this.objectMapper = objectMapper;
+        this.recorder = recorder;
+        this.dataset = dataset;
+        this.random = new Random(userIndex);
+        this.userIndex = userIndex;
+    }
+
+    void run(Scenario scenario) throws InterruptedException {
+        switch (scenario.pick(random)) {
+            case BROWSE:
+                browse();
+                break;
+            case SEARCH:
+                search();
+                break;
+            case DOWNLOAD:
+                download();
+                break;
+            case UPLOAD:
+                upload();
+                break;
+            case LOGIN:
+                loginAttempt();
+                break;
+            default:
+                throw new IllegalStateException();
+        }
+    }
+
+    // 课程列表 -> 最新笔记翻两页 -> 某门课程的笔记
+    private void browse() throws InterruptedException {
+        getJson("courses", "/api/courses/list");
+        JsonNode page = getJson("list", "/api/notes/list");
+        for (int i = 0; i < 2 && page != null && page.path("data").path("hasMore").asBoolean(); i++) {
+            page = getJson("list-next", "/api/notes/list?cursor=" + page.path("data").path("nextCursor").asText());
+        }
+        getJson("course", "/api/notes/course/" + dataset.randomCourse(random));
+    }
+
+    private void search() throws InterruptedException {
+        String term = SEARCH_TERMS[random.nextInt(SEARCH_TERMS.length)];
+        String path = "/api/notes/search?q=" + URLEncoder.encode(term, StandardCharsets.UTF_8);
+        if (random.nextInt(4) == 0) {
+            path += "&courseId=" + dataset.randomCourse(random);
+        }
+        getJson("search", path);
+    }
+
+    // 热门笔记集中了大部分下载；一成请求模拟断点续传
+    private void download() throws InterruptedException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + "/api/notes/" + dataset.popularNote(random) + "/download"));
+        String endpoint = "download";
+        if (random.nextInt(10) == 0) {
+            builder.header("Range", "bytes=" + random.nextInt(10_000) + "-");
+            endpoint = "download-range";
+        }
+        send(endpoint, builder.build(), HttpResponse.BodyHandlers.discarding());
+    }
+
+    private void upload() throws InterruptedException {
+        if (accessToken == null) {
+            login();
+        }
+        String boundary = UUID.randomUUID().toString();
+        byte[] body;
+        try {
+            body = multipart(boundary);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/notes/upload"))
+                .header("Authorization", "Bearer " + accessToken)
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+        send("upload", request, HttpResponse.BodyHandlers.discarding());
+    }
+
+    // 七成是少数几个IP上的撞库请求（存在的用户名+错误密码），三成是分散在大量IP上的正常登录
+    private void loginAttempt() throws InterruptedException {
+        String username = "perf-user-" + (random.nextInt(dataset.users) + 1);
+        if (random.nextInt(10) < 7) {
+            String ip = "203.0.113." + random.nextInt(8);
+            send("login-attack", loginRequest(username, UUID.randomUUID().toString(), ip),
+                    HttpResponse.BodyHandlers.discarding());
+        } else {
+            String ip = "10." + random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(256);
+            send("login-valid", loginRequest(username, dataset.password, ip), HttpResponse.BodyHandlers.discarding());
+        }
+    }
+
+    private void login() throws InterruptedException {
+        HttpRequest request = loginRequest("perf-user-" + (userIndex % dataset.users + 1), dataset.password, clientIp());
+        HttpResponse<byte[]> response = send("login", request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response == null) {
+            return;
+        }
+        try {
+            accessToken = objectMapper.readTree(response.body()).path("data").path("accessToken").asText(null);
+        } catch (IOException e) {
+            recorder.error("login");
+        }
+    }
+
+    // 服务端以perf profile启动时信任X-Forwarded-For，每个模拟用户使用自己的IP
+    private HttpRequest loginRequest(String username, String password, String ip) {
+        String json = "{\"username\":\"" + username + "\",\"password\":\"" + password + "\"}";
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/login"))
+                .header("Content-Type", "application/json")
+                .header("X-Forwarded-For", ip)
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private String clientIp() {
+        return "10.0." + (userIndex / 256) + "." + (userIndex % 256);
+    }
+
+    private JsonNode getJson(String endpoint, String path) throws InterruptedException {
+        HttpResponse<byte[]> response = send(endpoint, HttpRequest.newBuilder(URI.create(baseUrl + path)).build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        if (response == null || response.statusCode() != 200) {
+            return null;
+        }
+        try {
+            return objectMapper.readTree(response.body());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private <T> HttpResponse<T> send(String endpoint, HttpRequest request, HttpResponse.BodyHandler<T> handler)
+            throws InterruptedException {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<T> response = client.send(request, handler);
+            recorder.record(endpoint, start, response.statusCode());
+            return response;
+        } catch (IOException e) {
+            recorder.error(endpoint);
+            return null;
+        }
+    }
+
+    // 每次上传内容不同，避免按内容寻址去重后只测到秒传
+    private byte[] multipart(String boundary) throws IOException {
+        BufferedImage image = new BufferedImage(256, 256, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 256; y++) {
+            for (int x = 0; x < 256; x++) {
+                image.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", png);
+
+        List<String[]> fields = new ArrayList<>();
+        fields.add(new String[]{"title", "压测上传 " + UUID.randomUUID()});
+        fields.add(new String[]{"description", "load test"});
+        fields.add(new String[]{"courseId", String.valueOf(dataset.randomCourse(random))});
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(png.size() + 1024);
+        for (String[] field : fields) {
+            out.write(("--" + boundary + "\r\nContent-Disposition: form-data; name=\"" + field[0] + "\"\r\n\r\n"
+                    + field[1] + "\r\n").getBytes(StandardCharsets.UTF_8));
+        }
+        out.write(("--" + boundary + "\r\nContent-Disposition: form-data; name=\"file\"; filename=\"scan.png\"\r\n"
+                + "Content-Type: image/png\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        png.writeTo(out);
+        out.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,117 @@
+package com.noteshare.search;
+
+import com.noteshare.benchmark.BenchmarkSupport;
+import com.noteshare.dto.NoteSearchResponse;
+import com.noteshare.entity.Course;
+import com.noteshare.entity.Note;
+import com.noteshare.entity.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Lucene检索：关键词检索、前缀匹配、课程过滤，均包含分面统计
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    private static final String[] COURSES = {"高等数学", "线性代数", "大学物理", "数据结构", "操作系统", "计算机网络"};
+    private static final String[] TOPICS = {"期末复习", "习题答案", "课堂笔记", "实验报告", "知识点总结", "真题解析"};
+    private static final String[] TYPES = {"pdf", "jpg", "png"};
+
+    @Param({"10000", "100000"})
+    private int notes;
+
+    private Path dir;
+    private NoteSearchService searchService;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("bench-search");
+        searchService = new NoteSearchService();
+        BenchmarkSupport.inject(searchService, "indexDir", dir.toString());
+        // 不读取文件正文，只测索引字段上的检索
+        BenchmarkSupport.inject(searchService, "textExtractor", new NoteTextExtractor() {
+            @Override
+            public String extract(Note note) {
+                return "";
+            }
+        });
+        searchService.open();
+        searchService.rebuild(List.of(generate(notes)));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        searchService.close();
+        BenchmarkSupport.deleteRecursively(dir);
+    }
+
+    @Benchmark
+    public NoteSearchResponse keyword() {
+        return searchService.search("线性代数 复习", null, null, 0, 20);
+    }
+
+    @Benchmark
+    public NoteSearchResponse prefix() {
+        return searchService.search("数据", null, null, 0, 20);
+    }
+
+    @Benchmark
+    public NoteSearchResponse filtered() {
+        return searchService.search("笔记", 3L, "pdf", 0, 20);
+    }
+
+    private List<Note> generate(int count) {
+        Random random = new Random(42);
+        List<Course> courses = new ArrayList<>();
+        for (int i = 0; i < COURSES.length; i++) {
+            Course course = new Course();
+            course.setId((long) i + 1);
+            course.setName(COURSES[i]);
+            courses.add(course);
+        }
+        LocalDateTime now = LocalDateTime.of(2024, 6, 1, 12, 0);
+        List<Note> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Course course = courses.get(random.nextInt(courses.size()));
+            User user = new User();
+            user.setId((long) random.nextInt(300) + 1);
+            user.setUsername("student" + user.getId());
+
+            Note note = new Note();
+            note.setId((long) i + 1);
+            note.setTitle(course.getName() + TOPICS[random.nextInt(TOPICS.length)] + " 第" + (i % 16 + 1) + "章");
+            note.setDescription(TOPICS[random.nextInt(TOPICS.length)] + "，适合考前快速浏览");
+            note.setFileType(TYPES[random.nextInt(TYPES.length)]);
+            note.setFileName("note-" + i + "." + note.getFileType());
+            note.setFileSize(100_000L + random.nextInt(5_000_000));
+            note.setCourse(course);
+            note.setUser(user);
+            note.setCreatedTime(now.minusMinutes(i));
+            result.add(note);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,126 @@
+package com.noteshare.service;
+
+import com.noteshare.benchmark.BenchmarkSupport;
+import com.noteshare.cache.HotFileCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.UrlResource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.StreamUtils;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// 下载路径：FileDownloadService(transferTo)、命中热门文件堆外缓存，对比原先的 UrlResource + 流拷贝。
+// 不在Tomcat里运行，测的是不走sendfile时的写出开销
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DownloadBenchmark {
+
+    @Param({"65536", "1048576", "10485760"})
+    private int fileSize;
+
+    private Path dir;
+    private Path file;
+    private FileDownloadService downloadService;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("bench-download");
+        file = dir.resolve("note.pdf");
+        byte[] content = new byte[fileSize];
+        new Random(42).nextBytes(content);
+        Files.write(file, content);
+
+        HotFileCache hotFileCache = new HotFileCache();
+        BenchmarkSupport.inject(hotFileCache, "maxBytes", 64L * 1024 * 1024);
+        BenchmarkSupport.inject(hotFileCache, "maxFileBytes", 16L * 1024 * 1024);
+        BenchmarkSupport.inject(hotFileCache, "admitAfter", 1);
+        BenchmarkSupport.inject(hotFileCache, "meterRegistry", new SimpleMeterRegistry());
+        hotFileCache.init();
+
+        downloadService = new FileDownloadService();
+        BenchmarkSupport.inject(downloadService, "sendfileThreshold", 49152L);
+        BenchmarkSupport.inject(downloadService, "hotFileCache", hotFileCache);
+        BenchmarkSupport.inject(downloadService, "meterRegistry", new SimpleMeterRegistry());
+        downloadService.init();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        BenchmarkSupport.deleteRecursively(dir);
+    }
+
+    @Benchmark
+    public boolean fileDownloadService() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/notes/1/download");
+        return downloadService.send(file, null, "线性代数.pdf", "pdf", request, new DiscardingResponse());
+    }
+
+    // 传入存储键，第一次调用后文件就在缓存里
+    @Benchmark
+    public boolean hotFileCache() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/notes/1/download");
+        return downloadService.send(file, "bench-key", "线性代数.pdf", "pdf", request, new DiscardingResponse());
+    }
+
+    @Benchmark
+    public long resourceCopy() throws IOException {
+        Resource resource = new UrlResource(file.toUri());
+        try (InputStream in = resource.getInputStream()) {
+            return StreamUtils.copy(in, OutputStream.nullOutputStream());
+        }
+    }
+
+    // 响应体直接丢弃，避免MockHttpServletResponse把内容缓存在内存里
+    private static class DiscardingResponse extends MockHttpServletResponse {
+
+        private final ServletOutputStream out = new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener listener) {
+            }
+
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        };
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return out;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.noteshare.service;
+
+import com.noteshare.benchmark.BenchmarkSupport;
+import com.noteshare.dto.NotePageResponse;
+import com.noteshare.dto.NoteResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// 列表转换：缓存行拷贝 + convertToResponse（合并未写回的下载次数、下载链接、可删除标记）+ 生成游标
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NoteListingBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int notes;
+
+    private NoteService noteService;
+    private DownloadCounterService counterService;
+    private List<NoteResponse> rows;
+
+    @Setup
+    public void setUp() {
+        counterService = new DownloadCounterService();
+        BenchmarkSupport.inject(counterService, "writeBehind", true);
+        BenchmarkSupport.inject(counterService, "flushThreshold", Long.MAX_VALUE);
+
+        noteService = new NoteService();
+        BenchmarkSupport.inject(noteService, "downloadCounterService", counterService);
+
+        // 约十分之一的笔记有未写回的下载次数
+        rows = BenchmarkSupport.noteRows(notes + 1);
+        for (int i = 0; i < rows.size(); i += 10) {
+            counterService.increment(rows.get(i).getId());
+        }
+    }
+
+    @Benchmark
+    public NotePageResponse convertPage() {
+        List<NoteResponse> copy = new ArrayList<>(rows.size());
+        for (NoteResponse row : rows) {
+            copy.add(new NoteResponse(row));
+        }
+        return noteService.toPage(copy, notes, 7L, counterService.readStamp());
+    }
+}
@@ -0,0 +1,45 @@
+package com.noteshare.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// 上传请求线程上的文件名校验：取扩展名 + 白名单检查
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UploadValidationBenchmark {
+
+    private static final String[] FILE_NAMES = {
+            "线性代数期末复习.pdf", "IMG_20240601_123456.JPG", "scan.page-01.png",
+            "notes", "archive.tar.gz", "第三章 习题答案（完整版）.jpeg", "diagram.GIF", "malware.exe"
+    };
+
+    private NoteService noteService;
+
+    @Setup
+    public void setUp() {
+        noteService = new NoteService();
+    }
+
+    @Benchmark
+    public void validateFileNames(Blackhole blackhole) {
+        for (String name : FILE_NAMES) {
+            String extension = noteService.getFileExtension(name);
+            blackhole.consume(noteService.isAllowedFileType(extension));
+        }
+    }
+}
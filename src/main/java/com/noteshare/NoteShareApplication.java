@@ -1,9 +1,13 @@
 package com.noteshare;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication(
         scanBasePackages = {
@@ -15,14 +19,14 @@ import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 )
 @EntityScan("com.noteshare.entity")
 @EnableJpaRepositories("com.noteshare.repository")
+@EnableScheduling
 public class NoteShareApplication {
 
+    private static final Logger log = LoggerFactory.getLogger(NoteShareApplication.class);
+
     public static void main(String[] args) {
-        SpringApplication.run(NoteShareApplication.class, args);
-        System.out.println("======================================");
-        System.out.println("✅ 笔记共享系统后端启动成功！");
-        System.out.println("✅ 访问地址: http://localhost:8080");
-        System.out.println("✅ 测试接口: http://localhost:8080/api/auth/test");
-        System.out.println("======================================");
+        ConfigurableApplicationContext context = SpringApplication.run(NoteShareApplication.class, args);
+        String port = context.getEnvironment().getProperty("local.server.port", "8080");
+        log.info("笔记共享系统后端启动成功，访问地址: http://localhost:{}，指标: /actuator/prometheus", port);
     }
 }
\ No newline at end of file
@@ -0,0 +1,13 @@
+package com.noteshare.auth;
+
+import lombok.Data;
+
+// 当前登录用户，由AuthTokenFilter从访问令牌中解析，不查库也不依赖会话
+@Data
+public class AuthPrincipal {
+
+    public static final String REQUEST_ATTRIBUTE = AuthPrincipal.class.getName();
+
+    private final Long id;
+    private final String username;
+}
@@ -0,0 +1,36 @@
+package com.noteshare.auth;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+// 从 Authorization: Bearer <token> 解析当前用户放入request属性；
+// 没有令牌或令牌无效时按未登录处理，是否需要登录由各接口自己判断
+@Component
+public class AuthTokenFilter extends OncePerRequestFilter {
+
+    private static final String BEARER = "Bearer ";
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header != null && header.regionMatches(true, 0, BEARER, 0, BEARER.length())) {
+            AuthPrincipal principal = tokenService.verifyAccess(header.substring(BEARER.length()).trim());
+            if (principal != null) {
+                request.setAttribute(AuthPrincipal.REQUEST_ATTRIBUTE, principal);
+            }
+        }
+        chain.doFilter(request, response);
+    }
+}
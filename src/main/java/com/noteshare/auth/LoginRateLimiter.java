@@ -0,0 +1,112 @@
+package com.noteshare.auth;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletRequest;
+import java.time.Duration;
+import java.util.Locale;
+
+// 登录/注册限流：按用户名和客户端IP各一个令牌桶，在查库和哈希之前拒绝。
+// 令牌桶闲置一段时间后从缓存中淘汰，淘汰时桶本来也已经装满
+@Component
+public class LoginRateLimiter {
+
+    @Value("${auth.rate-limit.per-user.capacity:5}")
+    private int userCapacity;
+
+    @Value("${auth.rate-limit.per-user.refill-per-minute:5}")
+    private int userRefillPerMinute;
+
+    @Value("${auth.rate-limit.per-ip.capacity:20}")
+    private int ipCapacity;
+
+    @Value("${auth.rate-limit.per-ip.refill-per-minute:30}")
+    private int ipRefillPerMinute;
+
+    // 部署在反向代理之后时开启，按X-Forwarded-For的第一个地址限流
+    @Value("${auth.rate-limit.trust-forwarded-for:false}")
+    private boolean trustForwardedFor;
+
+    @Value("${auth.rate-limit.max-tracked-keys:100000}")
+    private long maxTrackedKeys;
+
+    private Cache<String, TokenBucket> userBuckets;
+    private Cache<String, TokenBucket> ipBuckets;
+
+    @PostConstruct
+    public void init() {
+        userBuckets = newCache(userCapacity, userRefillPerMinute);
+        ipBuckets = newCache(ipCapacity, ipRefillPerMinute);
+    }
+
+    // 先扣IP桶再扣用户名桶，任一不足都拒绝
+    public void acquireLogin(String username, String clientIp) {
+        if (!bucket(ipBuckets, clientIp, ipCapacity, ipRefillPerMinute).tryAcquire()) {
+            throw new LoginThrottledException("请求过于频繁，请稍后再试");
+        }
+        String key = username == null ? "" : username.toLowerCase(Locale.ROOT);
+        if (!bucket(userBuckets, key, userCapacity, userRefillPerMinute).tryAcquire()) {
+            throw new LoginThrottledException("该账号登录尝试过于频繁，请稍后再试");
+        }
+    }
+
+    public void acquireRegister(String clientIp) {
+        if (!bucket(ipBuckets, clientIp, ipCapacity, ipRefillPerMinute).tryAcquire()) {
+            throw new LoginThrottledException("请求过于频繁，请稍后再试");
+        }
+    }
+
+    public String clientIp(HttpServletRequest request) {
+        if (trustForwardedFor) {
+            String forwarded = request.getHeader("X-Forwarded-For");
+            if (forwarded != null && !forwarded.isEmpty()) {
+                int comma = forwarded.indexOf(',');
+                return (comma < 0 ? forwarded : forwarded.substring(0, comma)).trim();
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
+    private Cache<String, TokenBucket> newCache(int capacity, int refillPerMinute) {
+        // 闲置到桶重新装满所需的时间后即可丢弃
+        long refillMillis = (long) Math.ceil(capacity * 60_000.0 / refillPerMinute);
+        return Caffeine.newBuilder()
+                .maximumSize(maxTrackedKeys)
+                .expireAfterAccess(Duration.ofMillis(refillMillis))
+                .build();
+    }
+
+    private TokenBucket bucket(Cache<String, TokenBucket> buckets, String key, int capacity, int refillPerMinute) {
+        return buckets.get(key, k -> new TokenBucket(capacity, refillPerMinute / 60_000_000_000.0));
+    }
+
+    private static class TokenBucket {
+        private final int capacity;
+        private final double tokensPerNano;
+        private double tokens;
+        private long lastRefill;
+
+        private TokenBucket(int capacity, double tokensPerNano) {
+            this.capacity = capacity;
+            this.tokensPerNano = tokensPerNano;
+            this.tokens = capacity;
+            this.lastRefill = System.nanoTime();
+        }
+
+        // 临界区只有几次算术运算，不会阻塞
+        private synchronized boolean tryAcquire() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+            lastRefill = now;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens -= 1;
+            return true;
+        }
+    }
+}
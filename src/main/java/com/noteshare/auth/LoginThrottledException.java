@@ -0,0 +1,8 @@
+package com.noteshare.auth;
+
+// 登录尝试过于频繁或密码校验队列已满，控制器据此返回429
+public class LoginThrottledException extends RuntimeException {
+    public LoginThrottledException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,114 @@
+package com.noteshare.auth;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
+
+// BCrypt密码哈希。哈希是CPU密集操作，放在独立的有界线程池里执行，
+// 登录洪峰时排队满了直接拒绝，不会占满Web线程
+@Component
+public class PasswordHasher {
+
+    private static final Pattern BCRYPT = Pattern.compile("^\\$2[aby]?\\$\\d\\d\\$[./0-9A-Za-z]{53}$");
+
+    @Value("${auth.password.bcrypt-strength:10}")
+    private int strength;
+
+    @Value("${auth.password.hash-threads:0}")
+    private int threads;
+
+    @Value("${auth.password.hash-queue-capacity:32}")
+    private int queueCapacity;
+
+    @Value("${auth.password.hash-timeout-ms:3000}")
+    private long timeoutMs;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private BCryptPasswordEncoder encoder;
+    private ThreadPoolExecutor executor;
+
+    private String dummyHash;
+
+    @PostConstruct
+    public void init() {
+        encoder = new BCryptPasswordEncoder(strength);
+        // 0表示按CPU核数
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("password-hash-"));
+        Gauge.builder("auth.password.hash.queue.size", executor, e -> e.getQueue().size()).register(meterRegistry);
+        dummyHash = encoder.encode("dummy-password");
+    }
+
+    public String hash(String raw) {
+        return submit(() -> encoder.encode(raw));
+    }
+
+    // 兼容尚未迁移的明文密码；stored为null表示用户不存在，
+    // 此时也做一次同等代价的校验，响应时间不暴露用户名是否存在
+    public boolean matches(String raw, String stored) {
+        if (stored == null) {
+            submit(() -> encoder.matches(raw, dummyHash));
+            return false;
+        }
+        if (!isHashed(stored)) {
+            return MessageDigest.isEqual(raw.getBytes(StandardCharsets.UTF_8), stored.getBytes(StandardCharsets.UTF_8));
+        }
+        return submit(() -> encoder.matches(raw, stored));
+    }
+
+    // 明文密码或强度低于当前配置的哈希，登录成功后需要重新哈希
+    public boolean needsRehash(String stored) {
+        return !isHashed(stored) || encoder.upgradeEncoding(stored);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private boolean isHashed(String stored) {
+        return BCRYPT.matcher(stored).matches();
+    }
+
+    private <T> T submit(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            meterRegistry.counter("auth.password.hash.rejected").increment();
+            throw new LoginThrottledException("登录请求过多，请稍后重试");
+        }
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new LoginThrottledException("登录请求过多，请稍后重试");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LoginThrottledException("登录请求被中断");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
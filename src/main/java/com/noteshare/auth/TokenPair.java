@@ -0,0 +1,11 @@
+package com.noteshare.auth;
+
+import lombok.Data;
+
+@Data
+public class TokenPair {
+    private final String accessToken;
+    private final String refreshToken;
+    // 访问令牌有效期（秒）
+    private final long expiresIn;
+}
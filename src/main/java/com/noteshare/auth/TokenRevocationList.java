@@ -0,0 +1,71 @@
+package com.noteshare.auth;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// 已吊销令牌的jti（64位随机数）及其过期时间。令牌过期后签名校验本身就会拒绝，
+// 条目随之清理，所以只需保存有效期内被注销的令牌，规模很小。
+// 吊销写入revoked_token表，各节点定期把新记录同步到内存，校验访问令牌只查内存：
+// 在其他节点注销的访问令牌最多在一个同步周期内仍然有效。刷新令牌的吊销以插入表为准，跨节点也只能成功一次
+@Component
+public class TokenRevocationList {
+
+    // 各节点时钟可能不一致，同步时多往回取一段
+    private static final long SYNC_OVERLAP_SECONDS = 60;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final Map<Long, Long> revoked = new ConcurrentHashMap<>();
+
+    // 上次同步开始的时间，0表示尚未同步过（首次加载全部未过期的记录）
+    private volatile long syncedFrom;
+
+    // 返回false表示该令牌之前已被吊销（本节点或其他节点）
+    public boolean revoke(long jti, long expiresAtEpochSecond) {
+        if (revoked.putIfAbsent(jti, expiresAtEpochSecond) != null) {
+            return false;
+        }
+        try {
+            jdbcTemplate.update("INSERT INTO revoked_token (jti, expires_at, revoked_at) VALUES (?, ?, ?)",
+                    jti, expiresAtEpochSecond, Instant.now().getEpochSecond());
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    public boolean isRevoked(long jti) {
+        return revoked.containsKey(jti);
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+
+    @Scheduled(fixedDelayString = "${auth.token.revocation-sync-ms:5000}")
+    public void sync() {
+        long now = Instant.now().getEpochSecond();
+        long from = syncedFrom == 0 ? 0 : syncedFrom - SYNC_OVERLAP_SECONDS;
+        jdbcTemplate.query("SELECT jti, expires_at FROM revoked_token WHERE revoked_at >= ? AND expires_at >= ?",
+                rs -> {
+                    revoked.putIfAbsent(rs.getLong(1), rs.getLong(2));
+                }, from, now);
+        syncedFrom = now;
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void purgeExpired() {
+        long now = Instant.now().getEpochSecond();
+        revoked.values().removeIf(expiresAt -> expiresAt < now);
+        jdbcTemplate.update("DELETE FROM revoked_token WHERE expires_at < ?", now);
+    }
+}
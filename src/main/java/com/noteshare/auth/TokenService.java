@@ -0,0 +1,169 @@
+package com.noteshare.auth;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// 签发和校验HS256 JWT。访问令牌短期有效，每次请求只做签名和过期校验；
+// 刷新令牌用于换取新的令牌对，使用一次即吊销。各节点共享同一密钥即可互认令牌
+@Service
+public class TokenService {
+
+    private static final String ACCESS = "access";
+    private static final String REFRESH = "refresh";
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+    private static final String HEADER = ENCODER.encodeToString(
+            "{\"alg\":\"HS256\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8));
+
+    @Value("${auth.token.secret}")
+    private String secret;
+
+    @Value("${auth.token.access-ttl-seconds:900}")
+    private long accessTtlSeconds;
+
+    @Value("${auth.token.refresh-ttl-seconds:1209600}")
+    private long refreshTtlSeconds;
+
+    @Autowired
+    private TokenRevocationList revocationList;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final SecureRandom random = new SecureRandom();
+
+    // Mac不是线程安全的，每次签名从原型clone一份，避免重复初始化密钥
+    private Mac prototype;
+
+    // 不提供默认密钥：用公开的默认值签名等于任何人都能伪造令牌
+    @PostConstruct
+    public void init() throws GeneralSecurityException {
+        if (secret == null || secret.trim().isEmpty()) {
+            throw new IllegalStateException("未配置 auth.token.secret（生产环境用环境变量 AUTH_TOKEN_SECRET 设置）");
+        }
+        byte[] key = secret.getBytes(StandardCharsets.UTF_8);
+        if (key.length < 32) {
+            throw new IllegalStateException("auth.token.secret 至少需要32字节");
+        }
+        prototype = Mac.getInstance("HmacSHA256");
+        prototype.init(new SecretKeySpec(key, "HmacSHA256"));
+    }
+
+    public TokenPair issue(Long userId, String username) {
+        long now = Instant.now().getEpochSecond();
+        return new TokenPair(
+                sign(userId, username, ACCESS, now, now + accessTtlSeconds),
+                sign(userId, username, REFRESH, now, now + refreshTtlSeconds),
+                accessTtlSeconds);
+    }
+
+    // 签名无效、已过期或已吊销时返回null
+    public AuthPrincipal verifyAccess(String token) {
+        JsonNode claims = verify(token, ACCESS);
+        return claims == null ? null : principal(claims);
+    }
+
+    // 校验刷新令牌并吊销它，返回新的令牌对；令牌无效时返回null。
+    // 校验和吊销之间可能有并发的刷新，以吊销是否由本次完成为准，保证一个刷新令牌只能用一次
+    public TokenPair refresh(String refreshToken) {
+        JsonNode claims = verify(refreshToken, REFRESH);
+        if (claims == null || !revoke(claims)) {
+            return null;
+        }
+        AuthPrincipal principal = principal(claims);
+        return issue(principal.getId(), principal.getUsername());
+    }
+
+    // 注销：吊销仍然有效的访问令牌或刷新令牌，无效的令牌直接忽略
+    public void revoke(String token) {
+        JsonNode claims = verify(token, null);
+        if (claims != null) {
+            revoke(claims);
+        }
+    }
+
+    private boolean revoke(JsonNode claims) {
+        return revocationList.revoke(Long.parseUnsignedLong(claims.path("jti").asText(), 16), claims.path("exp").asLong());
+    }
+
+    private String sign(Long userId, String username, String type, long issuedAt, long expiresAt) {
+        Map<String, Object> claims = new LinkedHashMap<>();
+        claims.put("sub", String.valueOf(userId));
+        claims.put("name", username);
+        claims.put("typ", type);
+        claims.put("jti", Long.toHexString(random.nextLong()));
+        claims.put("iat", issuedAt);
+        claims.put("exp", expiresAt);
+        try {
+            String signingInput = HEADER + "." + ENCODER.encodeToString(objectMapper.writeValueAsBytes(claims));
+            return signingInput + "." + ENCODER.encodeToString(mac(signingInput));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // type为null时不限令牌类型
+    private JsonNode verify(String token, String type) {
+        if (token == null) {
+            return null;
+        }
+        int first = token.indexOf('.');
+        int second = token.indexOf('.', first + 1);
+        if (first < 0 || second < 0 || token.indexOf('.', second + 1) >= 0) {
+            return null;
+        }
+        // 只接受本服务签发的头部，避免alg=none之类的算法替换
+        if (!HEADER.equals(token.substring(0, first))) {
+            return null;
+        }
+        try {
+            byte[] signature = DECODER.decode(token.substring(second + 1));
+            if (!MessageDigest.isEqual(signature, mac(token.substring(0, second)))) {
+                return null;
+            }
+            JsonNode claims = objectMapper.readTree(DECODER.decode(token.substring(first + 1, second)));
+            if (type != null && !type.equals(claims.path("typ").asText())) {
+                return null;
+            }
+            if (claims.path("exp").asLong() < Instant.now().getEpochSecond()) {
+                return null;
+            }
+            if (revocationList.isRevoked(Long.parseUnsignedLong(claims.path("jti").asText(), 16))) {
+                return null;
+            }
+            return claims;
+        } catch (IllegalArgumentException | IOException e) {
+            return null;
+        }
+    }
+
+    private AuthPrincipal principal(JsonNode claims) {
+        return new AuthPrincipal(Long.valueOf(claims.path("sub").asText()), claims.path("name").asText());
+    }
+
+    private byte[] mac(String signingInput) {
+        try {
+            Mac mac = (Mac) prototype.clone();
+            return mac.doFinal(signingInput.getBytes(StandardCharsets.US_ASCII));
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
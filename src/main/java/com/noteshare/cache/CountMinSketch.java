@@ -0,0 +1,57 @@
+package com.noteshare.cache;
+
+// 浮点计数的Count-Min Sketch：估计值不会小于真实值，误差上界约为 总量 * e / width。
+// 内存只与width和depth有关，与键的数量无关。非线程安全，由调用方加锁
+public class CountMinSketch {
+
+    private final double[][] counts;
+    private final int width;
+
+    public CountMinSketch(int depth, int width) {
+        this.counts = new double[depth][width];
+        this.width = width;
+    }
+
+    // 累加后返回该键的估计值
+    public double add(long key, double amount) {
+        long hash1 = mix(key);
+        long hash2 = mix(hash1) | 1;
+        double estimate = Double.MAX_VALUE;
+        for (int i = 0; i < counts.length; i++) {
+            int index = (int) Math.floorMod(hash1 + i * hash2, (long) width);
+            counts[i][index] += amount;
+            estimate = Math.min(estimate, counts[i][index]);
+        }
+        return estimate;
+    }
+
+    public double estimate(long key) {
+        long hash1 = mix(key);
+        long hash2 = mix(hash1) | 1;
+        double estimate = Double.MAX_VALUE;
+        for (int i = 0; i < counts.length; i++) {
+            estimate = Math.min(estimate, counts[i][(int) Math.floorMod(hash1 + i * hash2, (long) width)]);
+        }
+        return estimate;
+    }
+
+    // 所有计数乘以同一个系数，用于时间衰减
+    public void scale(double factor) {
+        for (double[] row : counts) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] *= factor;
+            }
+        }
+    }
+
+    public long sizeInBytes() {
+        return (long) counts.length * width * Double.BYTES;
+    }
+
+    // splitmix64的混合函数
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
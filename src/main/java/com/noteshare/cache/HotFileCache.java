@@ -0,0 +1,133 @@
+package com.noteshare.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.apache.catalina.connector.CoyoteOutputStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// 热门文件缓存：下载高度集中在少数复习资料上，把这些文件的内容放在堆外内存里直接写出，
+// 不再每次打开文件。按存储键缓存，内容寻址的对象不会变化，只在对象被删除时失效。
+// 淘汰和准入由Caffeine的W-TinyLFU按访问频率决定；另外文件至少被请求admit-after次才读入内存，
+// 只下载一次的冷文件不会占用读盘和分配的开销
+@Component
+public class HotFileCache {
+
+    public static final String CACHE_NAME = "hotFiles";
+
+    // 堆外缓存总字节数，0表示关闭；需要不超过-XX:MaxDirectMemorySize（默认等于最大堆）
+    @Value("${file.hot-cache.max-bytes:134217728}")
+    private long maxBytes;
+
+    // 超过该大小的文件不缓存
+    @Value("${file.hot-cache.max-file-bytes:10485760}")
+    private long maxFileBytes;
+
+    @Value("${file.hot-cache.admit-after:2}")
+    private int admitAfter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Cache<String, ByteBuffer> files;
+
+    // 未缓存文件的近期请求次数
+    private Cache<String, AtomicInteger> candidates;
+
+    private Counter servedBytes;
+
+    @PostConstruct
+    public void init() {
+        files = Caffeine.newBuilder()
+                .maximumWeight(Math.max(maxBytes, 1))
+                .weigher((String key, ByteBuffer buffer) -> buffer.capacity())
+                .recordStats()
+                .build();
+        candidates = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(Duration.ofMinutes(10))
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, files, CACHE_NAME);
+        servedBytes = meterRegistry.counter("file.hot-cache.served.bytes");
+        Gauge.builder("file.hot-cache.bytes", files, f -> f.policy().eviction()
+                .map(e -> e.weightedSize().orElse(0L)).orElse(0L)).register(meterRegistry);
+        Gauge.builder("file.hot-cache.hit.ratio", files, f -> f.stats().hitRate()).register(meterRegistry);
+    }
+
+    // 返回文件内容的只读视图（各调用方的position互不影响）；未缓存且还不够热时返回null，由调用方走原来的路径
+    public ByteBuffer get(String key, long length, ContentSource source) throws IOException {
+        if (key == null || maxBytes <= 0 || length > maxFileBytes || length > maxBytes) {
+            return null;
+        }
+        ByteBuffer cached = files.getIfPresent(key);
+        if (cached != null) {
+            return cached.duplicate();
+        }
+        if (candidates.get(key, k -> new AtomicInteger()).incrementAndGet() < admitAfter) {
+            return null;
+        }
+        candidates.invalidate(key);
+        try {
+            // 同一个键并发加载时只读一次
+            return files.get(key, k -> load(source, length)).duplicate();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // 直接写出堆外缓冲区，Tomcat的输出流可以接收ByteBuffer，不经过中间的byte[]
+    public void write(ByteBuffer content, OutputStream out) throws IOException {
+        long length = content.remaining();
+        if (out instanceof CoyoteOutputStream) {
+            ((CoyoteOutputStream) out).write(content);
+        } else {
+            WritableByteChannel channel = Channels.newChannel(out);
+            while (content.hasRemaining()) {
+                channel.write(content);
+            }
+        }
+        servedBytes.increment(length);
+    }
+
+    // 存储对象被删除时调用
+    public void invalidate(String key) {
+        files.invalidate(key);
+        candidates.invalidate(key);
+    }
+
+    private ByteBuffer load(ContentSource source, long length) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect((int) length);
+        try (ReadableByteChannel channel = source.open()) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("文件长度与记录不符");
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.flip();
+        return buffer.asReadOnlyBuffer();
+    }
+
+    public interface ContentSource {
+        ReadableByteChannel open() throws IOException;
+    }
+}
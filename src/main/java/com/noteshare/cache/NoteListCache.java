@@ -0,0 +1,94 @@
+package com.noteshare.cache;
+
+import com.noteshare.dto.NoteResponse;
+import com.noteshare.event.DownloadCountsFlushedEvent;
+import com.noteshare.event.NoteCreatedEvent;
+import com.noteshare.event.NoteDeletedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// 笔记列表页缓存：缓存投影查询得到的原始行，按上传、删除和计数写回事件精确失效
+@Component
+public class NoteListCache {
+
+    public static final String CACHE_NAME = "noteLists";
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private Cache cache;
+
+    // 每次失效在扫描缓存之前递增；加载期间发生过失效的结果不留在缓存里，避免把旧数据放回去
+    private final AtomicLong generation = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        cache = cacheManager.getCache(CACHE_NAME);
+    }
+
+    // 返回的是缓存行的副本，调用方可以随意修改
+    @SuppressWarnings("unchecked")
+    public List<NoteResponse> get(NoteListKey key, Supplier<List<NoteResponse>> loader) {
+        List<NoteResponse> rows = cache.get(key, List.class);
+        if (rows == null) {
+            long gen = generation.get();
+            rows = loader.get();
+            // 先放入再核对：核对之后才发生的失效，其扫描一定能看到这条缓存
+            cache.put(key, rows);
+            if (generation.get() != gen) {
+                cache.evict(key);
+            }
+        }
+        List<NoteResponse> copy = new ArrayList<>(rows.size());
+        for (NoteResponse row : rows) {
+            copy.add(new NoteResponse(row));
+        }
+        return copy;
+    }
+
+    // 新笔记只会出现在相关范围的第一页，游标之后的页不受影响
+    @EventListener
+    public void onNoteCreated(NoteCreatedEvent event) {
+        invalidateIf((key, rows) -> key.isFirstPage() && key.covers(event.getCourseId(), event.getUserId()));
+    }
+
+    @EventListener
+    public void onNoteDeleted(NoteDeletedEvent event) {
+        invalidateIf((key, rows) -> key.covers(event.getCourseId(), event.getUserId())
+                && containsAny(rows, List.of(event.getNoteId())));
+    }
+
+    // 计数写回后内存增量清零，缓存里的数据库旧值需要重新加载
+    @EventListener
+    public void onDownloadCountsFlushed(DownloadCountsFlushedEvent event) {
+        invalidateIf((key, rows) -> containsAny(rows, event.getDeltas().keySet()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void invalidateIf(EntryPredicate predicate) {
+        generation.incrementAndGet();
+        Map<Object, Object> entries = ((CaffeineCache) cache).getNativeCache().asMap();
+        entries.entrySet().removeIf(entry ->
+                predicate.test((NoteListKey) entry.getKey(), (List<NoteResponse>) entry.getValue()));
+    }
+
+    private boolean containsAny(List<NoteResponse> rows, Collection<Long> noteIds) {
+        return rows.stream().anyMatch(row -> noteIds.contains(row.getId()));
+    }
+
+    private interface EntryPredicate {
+        boolean test(NoteListKey key, List<NoteResponse> rows);
+    }
+}
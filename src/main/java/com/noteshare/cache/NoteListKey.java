@@ -0,0 +1,45 @@
+package com.noteshare.cache;
+
+import lombok.Data;
+
+// 笔记列表缓存键：列表范围 + 游标 + 单页条数
+@Data
+public class NoteListKey {
+
+    public enum Scope { ALL, COURSE, USER }
+
+    private final Scope scope;
+    // 课程id或用户id，ALL时为null
+    private final Long scopeId;
+    // 第一页为null
+    private final String cursor;
+    private final int limit;
+
+    public static NoteListKey all(String cursor, int limit) {
+        return new NoteListKey(Scope.ALL, null, cursor, limit);
+    }
+
+    public static NoteListKey course(Long courseId, String cursor, int limit) {
+        return new NoteListKey(Scope.COURSE, courseId, cursor, limit);
+    }
+
+    public static NoteListKey user(Long userId, String cursor, int limit) {
+        return new NoteListKey(Scope.USER, userId, cursor, limit);
+    }
+
+    public boolean isFirstPage() {
+        return cursor == null;
+    }
+
+    // 一条笔记会出现在全部、所属课程和上传者三个范围的列表里
+    public boolean covers(Long courseId, Long userId) {
+        switch (scope) {
+            case COURSE:
+                return scopeId.equals(courseId);
+            case USER:
+                return scopeId.equals(userId);
+            default:
+                return true;
+        }
+    }
+}
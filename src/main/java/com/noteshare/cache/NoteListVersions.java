@@ -0,0 +1,102 @@
+package com.noteshare.cache;
+
+import com.noteshare.event.DownloadCountsFlushedEvent;
+import com.noteshare.event.NoteCreatedEvent;
+import com.noteshare.event.NoteDeletedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 列表接口的ETag：由笔记事件维护的版本号计算，不查库也不序列化就能判断列表是否变化。
+// 新增、删除笔记时递增全站、所属课程和上传者的版本；下载计数写回时递增计数版本（所有列表都带下载次数）。
+// 尚未写回的下载次数不计入版本，304时客户端看到的次数最多落后一个写回周期。
+// 版本只在本进程内有效，ETag中带上启动时的随机值，重启后旧ETag不会误命中。
+// 其他节点上的新增、删除不会递增本节点的版本，ETag里再带上时间段序号：同一ETag最多在一个时间段内得到304，
+// 跨节点的变化最晚在下一个时间段重新下发（列表缓存本身按cache.note-lists.ttl-seconds过期）
+@Component
+public class NoteListVersions {
+
+    @Value("${cache.note-lists.etag-bucket-seconds:60}")
+    private long bucketSeconds;
+
+    private final long epoch = ThreadLocalRandom.current().nextLong();
+
+    private final AtomicLong allVersion = new AtomicLong();
+
+    private final AtomicLong countsVersion = new AtomicLong();
+
+    private final Map<Long, AtomicLong> courseVersions = new ConcurrentHashMap<>();
+
+    private final Map<Long, AtomicLong> userVersions = new ConcurrentHashMap<>();
+
+    @EventListener
+    public void onNoteCreated(NoteCreatedEvent event) {
+        bump(event.getCourseId(), event.getUserId());
+    }
+
+    @EventListener
+    public void onNoteDeleted(NoteDeletedEvent event) {
+        bump(event.getCourseId(), event.getUserId());
+    }
+
+    @EventListener
+    public void onDownloadCountsFlushed(DownloadCountsFlushedEvent event) {
+        countsVersion.incrementAndGet();
+    }
+
+    // variant区分同一版本下的不同表示：分页参数、协商的编码、当前用户等
+    public String allNotes(Object... variant) {
+        return etag("all", allVersion.get(), variant);
+    }
+
+    public String course(Long courseId, Object... variant) {
+        return etag("course" + courseId, version(courseVersions, courseId), variant);
+    }
+
+    public String user(Long userId, Object... variant) {
+        return etag("user" + userId, version(userVersions, userId), variant);
+    }
+
+    private void bump(Long courseId, Long userId) {
+        allVersion.incrementAndGet();
+        courseVersions.computeIfAbsent(courseId, id -> new AtomicLong()).incrementAndGet();
+        userVersions.computeIfAbsent(userId, id -> new AtomicLong()).incrementAndGet();
+    }
+
+    private long version(Map<Long, AtomicLong> versions, Long id) {
+        AtomicLong version = versions.get(id);
+        return version == null ? 0 : version.get();
+    }
+
+    // 弱ETag：Tomcat对带强ETag的响应不做gzip压缩；If-None-Match本身按弱比较，不影响304
+    private String etag(String scope, long version, Object[] variant) {
+        long bucket = System.currentTimeMillis() / TimeUnit.SECONDS.toMillis(bucketSeconds);
+        return "W/\"" + Long.toHexString(epoch) + "-" + Long.toHexString(bucket) + "-" + scope + "-" + version
+                + "-" + countsVersion.get() + "-" + digest(variant) + "\"";
+    }
+
+    // 变体参数的SHA-256（Base64url），不同的分页游标、编码、用户不会得到相同的ETag
+    private static String digest(Object[] variant) {
+        StringBuilder text = new StringBuilder();
+        for (Object part : variant) {
+            // 用不会出现在参数里的分隔符，("a,b", "c")和("a", "b,c")不会拼成同一个串
+            text.append(part).append('\u0000');
+        }
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(text.toString().getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
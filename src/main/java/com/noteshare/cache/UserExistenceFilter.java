@@ -0,0 +1,161 @@
+package com.noteshare.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Locale;
+
+// 已注册用户名和邮箱的布隆过滤器，用于注册和可用性检查的快速路径：
+// 过滤器判定不存在时不查库；判定可能存在时再查唯一索引。
+// 启动后从数据库加载，加载完成前一律查库。其他节点新注册的用户按sync-ms定期补进本节点过滤器，
+// 补进之前对这些用户名/邮箱的可用性检查会答"可用"，即答复最多滞后sync-ms；注册时最终由唯一索引兜底
+@Component
+public class UserExistenceFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(UserExistenceFilter.class);
+
+    // created_time由注册所在节点的时钟生成，且注册事务可能在同步之后才提交，同步时多往回取一段
+    private static final long SYNC_OVERLAP_SECONDS = 60;
+
+    // 预期用户数，实际用户数更多时按实际数的两倍分配
+    @Value("${auth.availability.expected-users:100000}")
+    private long expectedUsers;
+
+    @Value("${auth.availability.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private volatile BloomFilter usernames;
+    private volatile BloomFilter emails;
+
+    // 上次加载或同步开始的时间
+    private volatile LocalDateTime syncedFrom;
+
+    private Counter definitelyFree;
+    private Counter dbChecked;
+    private Counter falsePositives;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        definitelyFree = lookupCounter("definitely_free");
+        dbChecked = lookupCounter("db_checked");
+        falsePositives = lookupCounter("false_positive");
+
+        long start = System.currentTimeMillis();
+        LocalDateTime loadedFrom = LocalDateTime.now();
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user", Long.class);
+        long capacity = Math.max(expectedUsers, count == null ? 0 : count * 2);
+        BloomFilter loadingUsernames = new BloomFilter(capacity, falsePositiveRate);
+        BloomFilter loadingEmails = new BloomFilter(capacity, falsePositiveRate);
+        jdbcTemplate.query("SELECT username, email FROM user", rs -> {
+            put(loadingUsernames, loadingEmails, rs);
+        });
+        syncedFrom = loadedFrom;
+        usernames = loadingUsernames;
+        emails = loadingEmails;
+
+        registerGauges("username", loadingUsernames);
+        registerGauges("email", loadingEmails);
+        log.info("用户名/邮箱过滤器加载完成: {}个用户, 占用{}KB, 耗时{}ms",
+                loadingUsernames.insertions(), (loadingUsernames.sizeInBytes() + loadingEmails.sizeInBytes()) / 1024,
+                System.currentTimeMillis() - start);
+    }
+
+    // 补进上次同步以来注册的用户，包括其他节点注册的
+    @Scheduled(fixedDelayString = "${auth.availability.sync-ms:5000}")
+    public void sync() {
+        BloomFilter u = usernames;
+        BloomFilter e = emails;
+        if (u == null || e == null) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.query("SELECT username, email FROM user WHERE created_time >= ?", rs -> {
+            put(u, e, rs);
+        }, Timestamp.valueOf(syncedFrom.minusSeconds(SYNC_OVERLAP_SECONDS)));
+        syncedFrom = now;
+    }
+
+    // 返回false表示本节点过滤器里没有；其他节点最近sync-ms内注册的用户可能还没补进来
+    public boolean mightContainUsername(String username) {
+        return mightContain(usernames, username);
+    }
+
+    public boolean mightContainEmail(String email) {
+        return mightContain(emails, email);
+    }
+
+    // 注册成功后调用；加载完成前注册的用户若没被加载查询读到，同样由唯一索引兜底
+    public void add(String username, String email) {
+        BloomFilter u = usernames;
+        BloomFilter e = emails;
+        if (u != null) {
+            u.put(normalize(username));
+        }
+        if (e != null && email != null) {
+            e.put(normalize(email));
+        }
+    }
+
+    // 过滤器判定可能存在、查库后却不存在，用于观察实际误判率
+    public void recordFalsePositive() {
+        if (falsePositives != null) {
+            falsePositives.increment();
+        }
+    }
+
+    private boolean mightContain(BloomFilter filter, String value) {
+        if (filter == null || value == null) {
+            return true;
+        }
+        if (filter.mightContain(normalize(value))) {
+            dbChecked.increment();
+            return true;
+        }
+        definitelyFree.increment();
+        return false;
+    }
+
+    private void put(BloomFilter u, BloomFilter e, ResultSet rs) throws SQLException {
+        u.put(normalize(rs.getString(1)));
+        String email = rs.getString(2);
+        if (email != null) {
+            e.put(normalize(email));
+        }
+    }
+
+    // MySQL默认排序规则不区分大小写、忽略尾部空格，归一化只能让更多值落到同一个键上，不会漏判
+    private String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private Counter lookupCounter(String result) {
+        return Counter.builder("auth.availability.lookups").tag("result", result).register(meterRegistry);
+    }
+
+    private void registerGauges(String field, BloomFilter filter) {
+        Gauge.builder("auth.availability.filter.bytes", filter, BloomFilter::sizeInBytes)
+                .tag("field", field).register(meterRegistry);
+        Gauge.builder("auth.availability.filter.expected-fpp", filter, BloomFilter::expectedFalsePositiveRate)
+                .tag("field", field).register(meterRegistry);
+    }
+}
@@ -0,0 +1,49 @@
+package com.noteshare.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.noteshare.cache.NoteListCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String COURSES_CACHE = "courses";
+
+    // 课程几乎不变，系统里也没有修改入口，TTL只是为了兜底直接改库的情况
+    @Value("${cache.courses.ttl-seconds:600}")
+    private long coursesTtlSeconds;
+
+    @Value("${cache.note-lists.max-size:2000}")
+    private long noteListsMaxSize;
+
+    // 列表缓存按事件精确失效，TTL用于多节点部署时兜底
+    @Value("${cache.note-lists.ttl-seconds:300}")
+    private long noteListsTtlSeconds;
+
+    @Bean
+    public CacheManager cacheManager() {
+        SimpleCacheManager manager = new SimpleCacheManager();
+        manager.setCaches(List.of(
+                new CaffeineCache(COURSES_CACHE, Caffeine.newBuilder()
+                        .maximumSize(100)
+                        .expireAfterWrite(Duration.ofSeconds(coursesTtlSeconds))
+                        .recordStats()
+                        .build()),
+                new CaffeineCache(NoteListCache.CACHE_NAME, Caffeine.newBuilder()
+                        .maximumSize(noteListsMaxSize)
+                        .expireAfterWrite(Duration.ofSeconds(noteListsTtlSeconds))
+                        .recordStats()
+                        .build())));
+        return manager;
+    }
+}
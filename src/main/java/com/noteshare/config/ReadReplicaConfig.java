@@ -0,0 +1,81 @@
+package com.noteshare.config;
+
+import com.noteshare.datasource.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+// 配置了datasource.replica.urls时启用读写分离：spring.datasource.*仍是主库（Flyway迁移、所有写入和事务），
+// 只读查询经ReplicaRouting路由到副本。未配置时沿用Spring Boot默认的单数据源
+@Configuration
+@ConditionalOnProperty(prefix = "datasource.replica", name = "urls")
+public class ReadReplicaConfig {
+
+    @Value("${datasource.replica.urls}")
+    private List<String> urls;
+
+    // 未配置时与主库相同
+    @Value("${datasource.replica.username:}")
+    private String username;
+
+    @Value("${datasource.replica.password:}")
+    private String password;
+
+    @Value("${datasource.replica.pool-size:10}")
+    private int poolSize;
+
+    // 副本取连接的超时，超时即视为不可用并退回主库，不宜设得太长
+    @Value("${datasource.replica.connection-timeout-ms:1000}")
+    private long connectionTimeoutMillis;
+
+    @Value("${datasource.replica.retry-after-ms:10000}")
+    private long retryAfterMillis;
+
+    // 主库连接池仍注册为bean，hikaricp.*指标照常按连接池输出
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    // 路由数据源本身（绑定指标、关闭副本连接池），应用通过下面的dataSource使用它
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource,
+                                                             DataSourceProperties properties) {
+        List<DataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < urls.size(); i++) {
+            HikariDataSource replica = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(properties.determineDriverClassName())
+                    .url(urls.get(i).trim())
+                    .username(username.isEmpty() ? properties.determineUsername() : username)
+                    .password(username.isEmpty() ? properties.determinePassword() : password)
+                    .build();
+            replica.setPoolName("replica-" + (i + 1));
+            replica.setMaximumPoolSize(poolSize);
+            replica.setConnectionTimeout(connectionTimeoutMillis);
+            replica.setReadOnly(true);
+            // 副本启动时不可达不影响应用启动，先走主库，恢复后自动使用
+            replica.setInitializationFailTimeout(-1);
+            replicas.add(replica);
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, retryAfterMillis);
+    }
+
+    // 应用使用的数据源，MetricsConfig在它外面包一层统计SQL条数
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return replicaRoutingDataSource;
+    }
+}
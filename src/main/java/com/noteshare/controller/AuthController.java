@@ -1,13 +1,23 @@
 package com.noteshare.controller;
 
+import com.noteshare.auth.AuthPrincipal;
+import com.noteshare.auth.LoginRateLimiter;
+import com.noteshare.auth.LoginThrottledException;
+import com.noteshare.auth.TokenPair;
+import com.noteshare.auth.TokenService;
 import com.noteshare.dto.ApiResponse;
 import com.noteshare.dto.LoginRequest;
+import com.noteshare.dto.RefreshTokenRequest;
 import com.noteshare.dto.RegisterRequest;
 import com.noteshare.entity.User;
 import com.noteshare.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import javax.servlet.http.HttpSession;
+
+import javax.servlet.http.HttpServletRequest;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -19,72 +29,121 @@ public class AuthController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private LoginRateLimiter loginRateLimiter;
+
     @PostMapping("/register")
-    public ApiResponse register(@RequestBody RegisterRequest request, HttpSession session) {
+    public ResponseEntity<ApiResponse> register(@RequestBody RegisterRequest request, HttpServletRequest httpRequest) {
         try {
             if (!request.getPassword().equals(request.getConfirmPassword())) {
-                return ApiResponse.error("两次输入的密码不一致");
+                return ResponseEntity.ok(ApiResponse.error("两次输入的密码不一致"));
             }
 
             if (request.getPassword().length() < 6) {
-                return ApiResponse.error("密码长度至少6位");
+                return ResponseEntity.ok(ApiResponse.error("密码长度至少6位"));
             }
 
+            loginRateLimiter.acquireRegister(loginRateLimiter.clientIp(httpRequest));
+
             User user = new User();
             user.setUsername(request.getUsername());
             user.setEmail(request.getEmail());
             user.setPassword(request.getPassword());
 
             User savedUser = userService.register(user);
-            session.setAttribute("user", savedUser);
-
-            Map<String, Object> userInfo = new HashMap<>();
-            userInfo.put("id", savedUser.getId());
-            userInfo.put("username", savedUser.getUsername());
-            userInfo.put("email", savedUser.getEmail());
-
-            return ApiResponse.success("注册成功", userInfo);
+            return ResponseEntity.ok(ApiResponse.success("注册成功", loginResult(savedUser)));
 
+        } catch (LoginThrottledException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(ApiResponse.error(e.getMessage()));
         } catch (RuntimeException e) {
-            return ApiResponse.error(e.getMessage());
+            return ResponseEntity.ok(ApiResponse.error(e.getMessage()));
         }
     }
 
     @PostMapping("/login")
-    public ApiResponse login(@RequestBody LoginRequest request, HttpSession session) {
+    public ResponseEntity<ApiResponse> login(@RequestBody LoginRequest request, HttpServletRequest httpRequest) {
         try {
+            // 限流在查库和密码校验之前，被拒绝的请求几乎没有开销
+            loginRateLimiter.acquireLogin(request.getUsername(), loginRateLimiter.clientIp(httpRequest));
             User user = userService.login(request.getUsername(), request.getPassword());
-            session.setAttribute("user", user);
-
-            Map<String, Object> userInfo = new HashMap<>();
-            userInfo.put("id", user.getId());
-            userInfo.put("username", user.getUsername());
-            userInfo.put("email", user.getEmail());
-
-            return ApiResponse.success("登录成功", userInfo);
+            return ResponseEntity.ok(ApiResponse.success("登录成功", loginResult(user)));
 
+        } catch (LoginThrottledException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(ApiResponse.error(e.getMessage()));
         } catch (RuntimeException e) {
-            return ApiResponse.error(e.getMessage());
+            return ResponseEntity.ok(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    // 用刷新令牌换取新的令牌对，旧的刷新令牌随即失效
+    @PostMapping("/refresh")
+    public ApiResponse refresh(@RequestBody RefreshTokenRequest request) {
+        TokenPair tokens = tokenService.refresh(request.getRefreshToken());
+        if (tokens == null) {
+            return ApiResponse.error("登录已过期，请重新登录");
         }
+        return ApiResponse.success("刷新成功", tokens);
     }
 
+    // 吊销当前访问令牌和请求体中的刷新令牌
     @PostMapping("/logout")
-    public ApiResponse logout(HttpSession session) {
-        session.invalidate();
+    public ApiResponse logout(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+                              @RequestBody(required = false) RefreshTokenRequest request) {
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            tokenService.revoke(authorization.substring("Bearer ".length()).trim());
+        }
+        if (request != null && request.getRefreshToken() != null) {
+            tokenService.revoke(request.getRefreshToken());
+        }
         return ApiResponse.success("退出成功");
     }
 
+    // 注册页实时检查用户名/邮箱是否可用，多数情况下不查库
+    @GetMapping("/available")
+    public ApiResponse available(@RequestParam(value = "username", required = false) String username,
+                                 @RequestParam(value = "email", required = false) String email) {
+        if (isBlank(username) && isBlank(email)) {
+            return ApiResponse.error("请提供用户名或邮箱");
+        }
+        Map<String, Object> result = new HashMap<>();
+        if (!isBlank(username)) {
+            result.put("username", userService.isUsernameAvailable(username));
+        }
+        if (!isBlank(email)) {
+            result.put("email", userService.isEmailAvailable(email));
+        }
+        return ApiResponse.success("查询成功", result);
+    }
+
+    // 只校验令牌签名，不查库
     @GetMapping("/check")
-    public ApiResponse checkLogin(HttpSession session) {
-        User user = (User) session.getAttribute("user");
-        if (user != null) {
+    public ApiResponse checkLogin(AuthPrincipal principal) {
+        if (principal != null) {
             Map<String, Object> userInfo = new HashMap<>();
-            userInfo.put("id", user.getId());
-            userInfo.put("username", user.getUsername());
-            userInfo.put("email", user.getEmail());
+            userInfo.put("id", principal.getId());
+            userInfo.put("username", principal.getUsername());
             return ApiResponse.success("已登录", userInfo);
         } else {
             return ApiResponse.error("未登录");
         }
     }
-}
\ No newline at end of file
+
+    private boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    private Map<String, Object> loginResult(User user) {
+        TokenPair tokens = tokenService.issue(user.getId(), user.getUsername());
+        Map<String, Object> result = new HashMap<>();
+        result.put("id", user.getId());
+        result.put("username", user.getUsername());
+        result.put("email", user.getEmail());
+        result.put("accessToken", tokens.getAccessToken());
+        result.put("refreshToken", tokens.getRefreshToken());
+        result.put("expiresIn", tokens.getExpiresIn());
+        return result;
+    }
+}
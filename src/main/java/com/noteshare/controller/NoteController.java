@@ -1,126 +1,360 @@
 package com.noteshare.controller;
 
+import com.noteshare.auth.AuthPrincipal;
+import com.noteshare.cache.NoteListVersions;
 import com.noteshare.dto.ApiResponse;
-import com.noteshare.dto.NoteResponse;
+import com.noteshare.dto.BatchDeleteRequest;
+import com.noteshare.dto.BatchItemResult;
+import com.noteshare.dto.NotePageResponse;
+import com.noteshare.dto.NoteSearchResponse;
+import com.noteshare.dto.TrendingNoteResponse;
 import com.noteshare.entity.Note;
-import com.noteshare.entity.User;
-import com.noteshare.repository.NoteRepository;
+import com.noteshare.entity.NoteStatus;
+import com.noteshare.feed.FeedRejectedException;
+import com.noteshare.feed.NoteFeedHub;
+import com.noteshare.metrics.QueryBudget;
+import com.noteshare.service.FileDownloadService;
+import com.noteshare.service.NoteExportService;
 import com.noteshare.service.NoteService;
+import com.noteshare.service.NoteSyncService;
+import com.noteshare.service.TrendingService;
+import com.noteshare.upload.UploadPipeline;
+import com.noteshare.upload.UploadRejectedException;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import javax.servlet.http.HttpSession;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.InputStream;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/notes")
 @CrossOrigin(origins = "*")
 public class NoteController {
 
+    // 批量删除单次上限
+    private static final int MAX_BATCH_DELETE = 200;
+
+    // 按id打包下载单次上限
+    private static final int MAX_EXPORT_IDS = 500;
+
     @Autowired
     private NoteService noteService;
 
     @Autowired
-    private NoteRepository noteRepository;
+    private FileDownloadService fileDownloadService;
+
+    @Autowired
+    private UploadPipeline uploadPipeline;
+
+    @Autowired
+    private NoteExportService noteExportService;
+
+    @Autowired
+    private TrendingService trendingService;
+
+    @Autowired
+    private NoteFeedHub noteFeedHub;
+
+    @Autowired
+    private NoteSyncService noteSyncService;
+
+    @Autowired
+    private NoteListVersions noteListVersions;
 
+    // 查课程、插入笔记
+    @QueryBudget(2)
     @PostMapping("/upload")
-    public ApiResponse uploadNote(
+    public ResponseEntity<ApiResponse> uploadNote(
             @RequestParam("title") String title,
             @RequestParam("description") String description,
             @RequestParam("courseId") Long courseId,
             @RequestParam("file") MultipartFile file,
-            HttpSession session) {
+            AuthPrincipal principal) {
 
         try {
-            User user = (User) session.getAttribute("user");
-            if (user == null) {
-                return ApiResponse.error("请先登录");
+            if (principal == null) {
+                return ResponseEntity.ok(ApiResponse.error("请先登录"));
+            }
+
+            // 文件在后台处理，处理进度通过 /{id}/status 查询
+            Note note = uploadPipeline.accept(title, description, courseId, file, principal.getId());
+            return ResponseEntity.ok(ApiResponse.success("笔记已上传，正在处理", note.getId()));
+
+        } catch (UploadRejectedException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(ApiResponse.error(e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.ok(ApiResponse.error("文件上传失败: " + e.getMessage()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.ok(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    // 查课程、JDBC批量插入笔记
+    @QueryBudget(2)
+    @PostMapping("/upload/batch")
+    public ResponseEntity<ApiResponse> uploadNotes(
+            @RequestParam("files") List<MultipartFile> files,
+            @RequestParam(value = "titles", required = false) List<String> titles,
+            @RequestParam(value = "description", required = false) String description,
+            @RequestParam("courseId") Long courseId,
+            AuthPrincipal principal) {
+
+        try {
+            if (principal == null) {
+                return ResponseEntity.ok(ApiResponse.error("请先登录"));
             }
 
-            Note note = noteService.uploadNote(title, description, courseId, file, user);
-            return ApiResponse.success("笔记上传成功", note.getId());
+            // 标题缺省时使用文件名；每个文件的结果单独返回，合格的文件进入后台处理
+            List<BatchItemResult> results = uploadPipeline.acceptBatch(
+                    titles == null ? List.of() : titles, description, courseId, files, principal.getId());
+            return ResponseEntity.ok(ApiResponse.success("批量上传已受理", results));
 
+        } catch (UploadRejectedException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(ApiResponse.error(e.getMessage()));
         } catch (IOException e) {
-            return ApiResponse.error("文件上传失败: " + e.getMessage());
+            return ResponseEntity.ok(ApiResponse.error("文件上传失败: " + e.getMessage()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.ok(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    @QueryBudget(1)
+    @GetMapping("/{id}/status")
+    public ApiResponse getUploadStatus(@PathVariable Long id) {
+        try {
+            Note note = noteService.getNoteById(id);
+            Map<String, Object> status = new HashMap<>();
+            status.put("id", note.getId());
+            status.put("status", note.getStatus());
+            status.put("failureReason", note.getFailureReason());
+            return ApiResponse.success("获取笔记状态成功", status);
         } catch (RuntimeException e) {
             return ApiResponse.error(e.getMessage());
         }
     }
 
+    // 一条投影查询，命中列表缓存时为0
+    @QueryBudget(1)
     @GetMapping("/list")
-    public ApiResponse getAllNotes() {
+    public ResponseEntity<ApiResponse> getAllNotes(@RequestParam(value = "cursor", required = false) String cursor,
+                                                   @RequestParam(value = "size", required = false) Integer size,
+                                                   @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                   WebRequest request) {
+        String etag = noteListVersions.allNotes(cursor, size, accept);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
         try {
-            List<NoteResponse> notes = noteService.getAllNotes();
-            return ApiResponse.success("获取笔记列表成功", notes);
+            NotePageResponse notes = noteService.getAllNotes(cursor, size);
+            return cacheable(ApiResponse.success("获取笔记列表成功", notes), etag, CacheControl.noCache());
         } catch (Exception e) {
-            return ApiResponse.error("获取笔记列表失败: " + e.getMessage());
+            return ResponseEntity.ok(ApiResponse.error("获取笔记列表失败: " + e.getMessage()));
         }
     }
 
+    @QueryBudget(1)
     @GetMapping("/course/{courseId}")
-    public ApiResponse getNotesByCourse(@PathVariable Long courseId) {
+    public ResponseEntity<ApiResponse> getNotesByCourse(@PathVariable Long courseId,
+                                                        @RequestParam(value = "cursor", required = false) String cursor,
+                                                        @RequestParam(value = "size", required = false) Integer size,
+                                                        @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                        WebRequest request) {
+        String etag = noteListVersions.course(courseId, cursor, size, accept);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
         try {
-            List<NoteResponse> notes = noteService.getNotesByCourse(courseId);
-            return ApiResponse.success("获取课程笔记成功", notes);
+            NotePageResponse notes = noteService.getNotesByCourse(courseId, cursor, size);
+            return cacheable(ApiResponse.success("获取课程笔记成功", notes), etag, CacheControl.noCache());
         } catch (Exception e) {
-            return ApiResponse.error("获取课程笔记失败: " + e.getMessage());
+            return ResponseEntity.ok(ApiResponse.error("获取课程笔记失败: " + e.getMessage()));
         }
     }
 
-    @GetMapping("/my-notes")
-    public ApiResponse getMyNotes(HttpSession session) {
+    // 检索走Lucene，只回表取一次下载次数
+    @QueryBudget(1)
+    @GetMapping("/search")
+    public ApiResponse searchNotes(@RequestParam("q") String keyword,
+                                   @RequestParam(value = "courseId", required = false) Long courseId,
+                                   @RequestParam(value = "type", required = false) String fileType,
+                                   @RequestParam(value = "page", required = false) Integer page,
+                                   @RequestParam(value = "size", required = false) Integer size) {
         try {
-            User user = (User) session.getAttribute("user");
-            if (user == null) {
-                return ApiResponse.error("请先登录");
-            }
+            NoteSearchResponse result = noteService.searchNotes(keyword, courseId, fileType, page, size);
+            return ApiResponse.success("检索笔记成功", result);
+        } catch (Exception e) {
+            return ApiResponse.error("检索笔记失败: " + e.getMessage());
+        }
+    }
+
+    // 热门笔记：window=day/week/month（默认week），不传courseId时为全站榜单；
+    // 榜单在下载计数写回时增量刷新，请求只读内存快照
+    @QueryBudget(0)
+    @GetMapping("/trending")
+    public ApiResponse getTrending(@RequestParam(value = "courseId", required = false) Long courseId,
+                                   @RequestParam(value = "window", required = false) String window,
+                                   @RequestParam(value = "limit", required = false) Integer limit) {
+        try {
+            List<TrendingNoteResponse> notes = trendingService.getTrending(courseId, window, limit == null ? 10 : limit);
+            return ApiResponse.success("获取热门笔记成功", notes);
+        } catch (Exception e) {
+            return ApiResponse.error("获取热门笔记失败: " + e.getMessage());
+        }
+    }
+
+    // 实时推送（Server-Sent Events）：订阅某门课程或全站（不传courseId）笔记的新增、删除和下载次数变化，
+    // 代替轮询列表；变化按feed.coalesce-ms合并成批推送，连接断开重连后客户端应重新拉取列表
+    @QueryBudget(0)
+    @GetMapping("/feed")
+    public SseEmitter subscribeFeed(@RequestParam(value = "courseId", required = false) Long courseId,
+                                    HttpServletResponse response) throws IOException {
+        try {
+            return noteFeedHub.subscribe(courseId);
+        } catch (FeedRejectedException e) {
+            response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), e.getMessage());
+            return null;
+        }
+    }
+
+    // 增量同步：带上上次返回的token，只返回之后新增或变化的笔记和已删除的笔记id；
+    // 不带token或token已过期时reset为true，客户端用列表接口全量拉取后再从返回的token开始同步。
+    // 查变更记录、按id取笔记
+    @QueryBudget(2)
+    @GetMapping("/sync")
+    public ApiResponse syncNotes(@RequestParam(value = "token", required = false) String token,
+                                 @RequestParam(value = "courseId", required = false) Long courseId) {
+        try {
+            return ApiResponse.success("同步成功", noteSyncService.sync(token, courseId));
+        } catch (Exception e) {
+            return ApiResponse.error("同步失败: " + e.getMessage());
+        }
+    }
 
-            List<NoteResponse> notes = noteService.getNotesByUserWithDeletable(user.getId(), user.getId());
-            return ApiResponse.success("获取我的笔记成功", notes);
+    @QueryBudget(1)
+    @GetMapping("/my-notes")
+    public ResponseEntity<ApiResponse> getMyNotes(@RequestParam(value = "cursor", required = false) String cursor,
+                                                  @RequestParam(value = "size", required = false) Integer size,
+                                                  @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                  AuthPrincipal principal,
+                                                  WebRequest request) {
+        if (principal == null) {
+            return ResponseEntity.ok(ApiResponse.error("请先登录"));
+        }
+        String etag = noteListVersions.user(principal.getId(), cursor, size, accept);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        try {
+            NotePageResponse notes = noteService.getNotesByUser(principal.getId(), principal.getId(), cursor, size);
+            return cacheable(ApiResponse.success("获取我的笔记成功", notes), etag, CacheControl.noCache().cachePrivate());
         } catch (Exception e) {
-            return ApiResponse.error("获取我的笔记失败: " + e.getMessage());
+            return ResponseEntity.ok(ApiResponse.error("获取我的笔记失败: " + e.getMessage()));
         }
     }
 
+    // 查笔记；下载计数直写（write-behind=false）时再加一条UPDATE
+    @QueryBudget(2)
     @GetMapping("/{id}/download")
-    public ResponseEntity<Resource> downloadNote(@PathVariable Long id) {
+    public void downloadNote(@PathVariable Long id,
+                             HttpServletRequest request,
+                             HttpServletResponse response) throws IOException {
+        Note note = findReadyNote(id);
+        if (note == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        boolean downloaded;
+        Path localFile = noteService.getLocalFile(note);
+        if (localFile != null) {
+            downloaded = fileDownloadService.send(localFile, note.getStorageKey(),
+                    note.getFileName(), note.getFileType(), request, response);
+        } else {
+            InputStream content;
+            try {
+                content = noteService.openFile(note);
+            } catch (FileNotFoundException e) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+            downloaded = fileDownloadService.send(content, note.getFileSize(),
+                    note.getStorageKey(), note.getFileName(), note.getFileType(), request, response);
+        }
+
+        // 只有从头开始的完整下载才计数，续传和304不重复计数
+        if (downloaded) {
+            noteService.incrementDownloadCount(id);
+        }
+    }
+
+    // 打包下载整个课程的笔记，ZIP边生成边发送；
+    // 按批查询、按批计数，SQL条数随课程笔记数增长（每batch-size条一次查询，下载计数直写时再加一次更新），不设预算
+    @GetMapping("/course/{courseId}/export")
+    public void exportCourse(@PathVariable Long courseId, HttpServletResponse response) throws IOException {
         try {
-            Note note = noteService.getNoteById(id);
-            Path filePath = Paths.get(note.getFilePath());
-            Resource resource = new UrlResource(filePath.toUri());
-
-            if (resource.exists() && resource.isReadable()) {
-                // 增加下载计数
-                noteService.incrementDownloadCount(id);
-
-                return ResponseEntity.ok()
-                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                        .header(HttpHeaders.CONTENT_DISPOSITION,
-                                "attachment; filename=\"" + note.getFileName() + "\"")
-                        .body(resource);
-            } else {
-                return ResponseEntity.notFound().build();
+            noteExportService.exportCourse(courseId, response);
+        } catch (RuntimeException e) {
+            if (response.isCommitted()) {
+                throw e;
             }
-        } catch (Exception e) {
-            return ResponseEntity.notFound().build();
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
         }
     }
 
+    // 打包下载指定的笔记，不存在或未处理完成的id直接忽略
+    @GetMapping("/export")
+    public void exportNotes(@RequestParam("ids") List<Long> ids, HttpServletResponse response) throws IOException {
+        if (ids.isEmpty() || ids.size() > MAX_EXPORT_IDS) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+        noteExportService.exportNotes(ids, response);
+    }
+
+    @QueryBudget(1)
+    @GetMapping("/{id}/preview")
+    public void previewNote(@PathVariable Long id,
+                            HttpServletRequest request,
+                            HttpServletResponse response) throws IOException {
+        Note note = findReadyNote(id);
+        if (note == null || note.getPreviewKey() == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        Path localFile = noteService.getLocalPreview(note);
+        if (localFile != null) {
+            fileDownloadService.send(localFile, note.getPreviewKey(), "preview.png", "png", request, response);
+            return;
+        }
+        try {
+            fileDownloadService.send(noteService.openPreview(note), noteService.getPreviewSize(note),
+                    note.getPreviewKey(), "preview.png", "png", request, response);
+        } catch (FileNotFoundException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+        }
+    }
+
+    // 查笔记、删除、写删除墓碑、查两类仍被引用的存储键
+    @QueryBudget(5)
     @DeleteMapping("/{id}")
-    public ApiResponse deleteNote(@PathVariable Long id, HttpSession session) {
+    public ApiResponse deleteNote(@PathVariable Long id, AuthPrincipal principal) {
         try {
-            User user = (User) session.getAttribute("user");
-            if (user == null) {
+            if (principal == null) {
                 return ApiResponse.error("请先登录");
             }
 
@@ -128,22 +362,12 @@ public class NoteController {
             Note note = noteService.getNoteById(id);
 
             // 权限检查：只能删除自己的笔记
-            if (!note.getUser().getId().equals(user.getId())) {
+            if (!note.getUser().getId().equals(principal.getId())) {
                 return ApiResponse.error("无权删除此笔记");
             }
 
-            // 删除文件
-            try {
-                Path filePath = Paths.get(note.getFilePath());
-                Files.deleteIfExists(filePath);
-                System.out.println("删除文件成功: " + filePath);
-            } catch (IOException e) {
-                System.out.println("删除文件失败: " + e.getMessage());
-                // 记录日志但不阻止删除数据库记录
-            }
-
-            // 删除数据库记录
-            noteRepository.delete(note);
+            // 删除数据库记录，文件在没有其他笔记引用时一并删除
+            noteService.deleteNote(note);
 
             return ApiResponse.success("删除笔记成功");
 
@@ -153,4 +377,49 @@ public class NoteController {
             return ApiResponse.error("删除笔记失败: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    // 与删除条数无关：一次权限查询、一条DELETE、一条INSERT写删除墓碑、两次引用查询
+    @QueryBudget(5)
+    @PostMapping("/batch-delete")
+    public ApiResponse deleteNotes(@RequestBody BatchDeleteRequest request, AuthPrincipal principal) {
+        try {
+            if (principal == null) {
+                return ApiResponse.error("请先登录");
+            }
+            List<Long> ids = request.getIds();
+            if (ids == null || ids.isEmpty()) {
+                return ApiResponse.error("请选择要删除的笔记");
+            }
+            if (ids.size() > MAX_BATCH_DELETE) {
+                return ApiResponse.error("单次最多删除" + MAX_BATCH_DELETE + "条笔记");
+            }
+
+            // 只删除自己的笔记，其余条目在结果里标明原因
+            List<BatchItemResult> results = noteService.deleteNotes(ids, principal.getId());
+            return ApiResponse.success("批量删除完成", results);
+
+        } catch (Exception e) {
+            return ApiResponse.error("批量删除失败: " + e.getMessage());
+        }
+    }
+
+    // 还在处理中或处理失败的笔记不能下载
+    private Note findReadyNote(Long id) {
+        try {
+            Note note = noteService.getNoteById(id);
+            return note.getStatus() == NoteStatus.READY ? note : null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    // 列表响应：no-cache要求客户端每次带If-None-Match重新验证，未变化时返回304且不查库；
+    // 同一URL可按Accept返回JSON/Smile/CBOR，Vary告知中间缓存按Accept区分
+    private ResponseEntity<ApiResponse> cacheable(ApiResponse body, String etag, CacheControl cacheControl) {
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(body);
+    }
+}
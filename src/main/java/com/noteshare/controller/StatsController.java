@@ -0,0 +1,57 @@
+package com.noteshare.controller;
+
+import com.noteshare.dto.ApiResponse;
+import com.noteshare.metrics.QueryBudget;
+import com.noteshare.service.StatsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+// 统计数据由StatsService在内存中维护，接口不扫描笔记表
+@RestController
+@RequestMapping("/api/stats")
+@CrossOrigin(origins = "*")
+@QueryBudget(0)
+public class StatsController {
+
+    @Autowired
+    private StatsService statsService;
+
+    @GetMapping("/summary")
+    public ApiResponse getSummary() {
+        return ApiResponse.success("获取统计成功", statsService.getSummary());
+    }
+
+    // 课程列表缓存未命中时查一次课程表
+    @GetMapping("/courses")
+    @QueryBudget(1)
+    public ApiResponse getAllCourseStats() {
+        try {
+            return ApiResponse.success("获取课程统计成功", statsService.getAllCourseStats());
+        } catch (Exception e) {
+            return ApiResponse.error("获取课程统计失败: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/courses/{courseId}")
+    public ApiResponse getCourseStats(@PathVariable Long courseId) {
+        return ApiResponse.success("获取课程统计成功", statsService.getCourseStats(courseId));
+    }
+
+    @GetMapping("/users/{userId}")
+    public ApiResponse getUserStats(@PathVariable Long userId) {
+        return ApiResponse.success("获取用户统计成功", statsService.getUserStats(userId));
+    }
+
+    // by=notes（默认）按笔记数，by=downloads按总下载次数
+    // 排行榜每隔一段时间重新计算时会查一次上榜用户名
+    @GetMapping("/top-uploaders")
+    @QueryBudget(1)
+    public ApiResponse getTopUploaders(@RequestParam(value = "by", required = false) String by,
+                                       @RequestParam(value = "limit", required = false) Integer limit) {
+        try {
+            return ApiResponse.success("获取上传排行成功", statsService.getTopUploaders(by, limit == null ? 10 : limit));
+        } catch (Exception e) {
+            return ApiResponse.error("获取上传排行失败: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.noteshare.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.noteshare.auth.AuthPrincipal;
+import com.noteshare.event.DownloadCountsFlushedEvent;
+import com.noteshare.event.NoteCreatedEvent;
+import com.noteshare.event.NoteDeletedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// 只读查询走副本：列表、课程、登录查用户这类读多写少的查询用read()包一层，连接从副本池取（未配置副本时仍走主库）。
+// 读己之写按用户区分：用户增删笔记后的一段时间内（不小于副本的复制延迟），该用户请求中的read()走主库，其他用户照常读副本。
+// 当前用户取自AuthTokenFilter放在请求上的AuthPrincipal；写入记录只在本节点，请求被分到别的节点时仍可能读到副本上的旧数据。
+// 结果要放进共享缓存的查询用readShared()：缓存给所有用户看，任何笔记写入后的这段时间内都走主库，
+// 免得列表缓存失效后又被别的用户装入副本上的旧数据。已在事务中时连接已经绑定，不做切换
+@Component
+public class ReplicaRouting {
+
+    private static final ThreadLocal<Boolean> REPLICA_READ = new ThreadLocal<>();
+
+    @Value("${datasource.replica.max-lag-ms:1000}")
+    private long maxLagMillis;
+
+    // 最近写过笔记的用户，过了复制延迟自动淘汰
+    private Cache<Long, Boolean> recentWriters;
+
+    private volatile long lastWriteNanos = System.nanoTime() - TimeUnit.DAYS.toNanos(1);
+
+    @PostConstruct
+    public void init() {
+        recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(maxLagMillis))
+                .build();
+    }
+
+    // 事件发布之前写入就已可见时（如上传完成后还要建索引），由写入方先调用
+    public void markWritten(Long userId) {
+        recentWriters.put(userId, Boolean.TRUE);
+        lastWriteNanos = System.nanoTime();
+    }
+
+    @EventListener
+    public void onNoteCreated(NoteCreatedEvent event) {
+        markWritten(event.getUserId());
+    }
+
+    @EventListener
+    public void onNoteDeleted(NoteDeletedEvent event) {
+        markWritten(event.getUserId());
+    }
+
+    // 下载次数不属于哪个用户的写入，只影响共享缓存
+    @EventListener
+    public void onDownloadCountsFlushed(DownloadCountsFlushedEvent event) {
+        lastWriteNanos = System.nanoTime();
+    }
+
+    public <T> T read(Supplier<T> query) {
+        return readFrom(currentUserWroteRecently(), query);
+    }
+
+    public <T> T readShared(Supplier<T> query) {
+        return readFrom(System.nanoTime() - lastWriteNanos < TimeUnit.MILLISECONDS.toNanos(maxLagMillis), query);
+    }
+
+    private <T> T readFrom(boolean primary, Supplier<T> query) {
+        if (primary || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return query.get();
+        }
+        Boolean previous = REPLICA_READ.get();
+        REPLICA_READ.set(Boolean.TRUE);
+        try {
+            return query.get();
+        } finally {
+            if (previous == null) {
+                REPLICA_READ.remove();
+            } else {
+                REPLICA_READ.set(previous);
+            }
+        }
+    }
+
+    private boolean currentUserWroteRecently() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return false;
+        }
+        Object principal = attributes.getAttribute(AuthPrincipal.REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        return principal instanceof AuthPrincipal
+                && recentWriters.getIfPresent(((AuthPrincipal) principal).getId()) != null;
+    }
+
+    static boolean isReplicaRead() {
+        return REPLICA_READ.get() != null;
+    }
+}
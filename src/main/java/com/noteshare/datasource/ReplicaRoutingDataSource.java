@@ -0,0 +1,117 @@
+package com.noteshare.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// 按ReplicaRouting的标记在主库和副本之间选连接：只读查询轮询副本，其余一律走主库。
+// 副本取连接失败时标记为不可用，一段时间内跳过它，全部副本不可用时退回主库。
+// 主库连接池单独注册为bean，副本连接池随本对象关闭，指标也由本对象绑定
+// （MeterRegistry创建时要绑定数据源指标，这里不能反过来在构造时依赖它）
+public class ReplicaRoutingDataSource extends AbstractDataSource implements MeterBinder, Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+    private final long retryAfterNanos;
+
+    // 各副本恢复尝试的时间点（System.nanoTime），0表示可用
+    private final AtomicLongArray downUntil;
+    private final AtomicInteger next = new AtomicInteger();
+
+    private volatile Counter replicaReads;
+    private volatile Counter fallbacks;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, long retryAfterMillis) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.retryAfterNanos = TimeUnit.MILLISECONDS.toNanos(retryAfterMillis);
+        this.downUntil = new AtomicLongArray(replicas.size());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (DataSource replica : replicas) {
+            if (replica instanceof HikariDataSource) {
+                ((HikariDataSource) replica).setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+            }
+        }
+        replicaReads = Counter.builder("datasource.replica.reads")
+                .description("从副本取连接的次数")
+                .register(registry);
+        fallbacks = Counter.builder("datasource.replica.fallbacks")
+                .description("副本不可用而改走主库的次数")
+                .register(registry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!ReplicaRouting.isReplicaRead()) {
+            return primary.getConnection();
+        }
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            int index = (start + i) % replicas.size();
+            long until = downUntil.get(index);
+            if (until != 0 && System.nanoTime() - until < 0) {
+                continue;
+            }
+            try {
+                Connection connection = replicas.get(index).getConnection();
+                if (until != 0 && downUntil.compareAndSet(index, until, 0)) {
+                    log.info("副本{}已恢复", index + 1);
+                }
+                increment(replicaReads);
+                return connection;
+            } catch (SQLException e) {
+                if (downUntil.compareAndSet(index, until, System.nanoTime() + retryAfterNanos)) {
+                    log.warn("副本{}取连接失败，{}ms内改走其他副本或主库: {}", index + 1,
+                            TimeUnit.NANOSECONDS.toMillis(retryAfterNanos), e.getMessage());
+                }
+            }
+        }
+        increment(fallbacks);
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+
+    // 绑定指标之前（启动阶段）的连接不计数
+    private static void increment(Counter counter) {
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    @Override
+    public void close() {
+        for (DataSource replica : replicas) {
+            if (replica instanceof Closeable) {
+                try {
+                    ((Closeable) replica).close();
+                } catch (IOException e) {
+                    log.warn("关闭副本连接池失败", e);
+                }
+            }
+        }
+    }
+}
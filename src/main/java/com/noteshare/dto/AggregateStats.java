@@ -0,0 +1,22 @@
+package com.noteshare.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// 课程或上传者的汇总统计
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AggregateStats {
+    // 课程id或用户id，全站汇总时为空
+    private Long id;
+    // 课程名或用户名
+    private String name;
+    private long noteCount;
+    private long totalBytes;
+    private long totalDownloads;
+    private LocalDateTime lastUploadTime;
+}
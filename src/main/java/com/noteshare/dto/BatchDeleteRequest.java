@@ -0,0 +1,10 @@
+package com.noteshare.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BatchDeleteRequest {
+    private List<Long> ids;
+}
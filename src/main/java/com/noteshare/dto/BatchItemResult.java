@@ -0,0 +1,26 @@
+package com.noteshare.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// 批量上传/删除中单个条目的处理结果
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchItemResult {
+    // 笔记id；上传时校验失败的文件没有id
+    private Long id;
+    // 上传时为原始文件名，删除时为空
+    private String fileName;
+    private boolean success;
+    private String message;
+
+    public static BatchItemResult ok(Long id, String fileName, String message) {
+        return new BatchItemResult(id, fileName, true, message);
+    }
+
+    public static BatchItemResult failed(Long id, String fileName, String message) {
+        return new BatchItemResult(id, fileName, false, message);
+    }
+}
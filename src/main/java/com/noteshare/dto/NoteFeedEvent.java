@@ -0,0 +1,22 @@
+package com.noteshare.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// 实时推送（/api/notes/feed）中的一条笔记变化，只带id，客户端按需重新拉取列表
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class NoteFeedEvent {
+
+    public enum Type { CREATED, DELETED, DOWNLOADS }
+
+    private Type type;
+    private Long noteId;
+    private Long courseId;
+    // 只在DOWNLOADS时有值：写回数据库后的下载次数
+    private Integer downloadCount;
+}
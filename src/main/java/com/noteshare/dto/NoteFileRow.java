@@ -0,0 +1,16 @@
+package com.noteshare.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// 打包导出用的轻量投影：只带读取文件需要的字段，不加载Note实体
+@Data
+@AllArgsConstructor
+public class NoteFileRow {
+    private Long id;
+    private String fileName;
+    private String fileType;
+    private String storageKey;
+    private String filePath;
+    private Long fileSize;
+}
@@ -0,0 +1,20 @@
+package com.noteshare.dto;
+
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class NotePageResponse {
+    private List<NoteResponse> items;
+
+    // 下一页游标，没有更多数据时为null
+    private String nextCursor;
+
+    private boolean hasMore;
+
+    public NotePageResponse(List<NoteResponse> items, String nextCursor, boolean hasMore) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+    }
+}
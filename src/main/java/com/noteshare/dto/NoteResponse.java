@@ -1,9 +1,11 @@
 package com.noteshare.dto;
 
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Data
+@NoArgsConstructor
 public class NoteResponse {
     private Long id;
     private String title;
@@ -22,4 +24,29 @@ public class NoteResponse {
 
     // 是否可以删除（前端根据当前用户判断）
     private boolean deletable;
-}
\ No newline at end of file
+
+    // JPQL构造器投影使用：一条SELECT直接带出课程名和上传者，不加载Note实体
+    public NoteResponse(Long id, String title, String description, String fileName,
+                        String fileType, Long fileSize, Integer downloadCount,
+                        LocalDateTime createdTime, String courseName,
+                        String uploaderName, Long uploaderId) {
+        this.id = id;
+        this.title = title;
+        this.description = description;
+        this.fileName = fileName;
+        this.fileType = fileType;
+        this.fileSize = fileSize;
+        this.downloadCount = downloadCount;
+        this.createdTime = createdTime;
+        this.courseName = courseName;
+        this.uploaderName = uploaderName;
+        this.uploaderId = uploaderId;
+    }
+
+    public NoteResponse(NoteResponse other) {
+        this(other.id, other.title, other.description, other.fileName, other.fileType, other.fileSize,
+                other.downloadCount, other.createdTime, other.courseName, other.uploaderName, other.uploaderId);
+        this.downloadUrl = other.downloadUrl;
+        this.deletable = other.deletable;
+    }
+}
@@ -0,0 +1,22 @@
+package com.noteshare.dto;
+
+import lombok.Data;
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class NoteSearchResponse {
+    private List<NoteResponse> items;
+
+    // 命中总数
+    private long total;
+
+    // 分面统计：维度(course/type) -> 取值 -> 命中数
+    private Map<String, Map<String, Integer>> facets;
+
+    public NoteSearchResponse(List<NoteResponse> items, long total, Map<String, Map<String, Integer>> facets) {
+        this.items = items;
+        this.total = total;
+        this.facets = facets;
+    }
+}
@@ -0,0 +1,30 @@
+package com.noteshare.dto;
+
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class NoteSyncResponse {
+    // true表示没有令牌或令牌已过期：客户端清空本地数据，用列表接口全量拉取后再从token开始增量同步
+    private boolean reset;
+
+    // 新增或有变化的笔记（完整信息）
+    private List<NoteResponse> upserted;
+
+    // 已删除的笔记id
+    private List<Long> deleted;
+
+    // 下次同步时带上
+    private String token;
+
+    // 变更超过一页时为true，用新token立即继续同步
+    private boolean hasMore;
+
+    public NoteSyncResponse(boolean reset, List<NoteResponse> upserted, List<Long> deleted, String token, boolean hasMore) {
+        this.reset = reset;
+        this.upserted = upserted;
+        this.deleted = deleted;
+        this.token = token;
+        this.hasMore = hasMore;
+    }
+}
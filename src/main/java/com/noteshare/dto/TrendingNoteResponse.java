@@ -0,0 +1,18 @@
+package com.noteshare.dto;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+// 热门笔记：在笔记信息之外带上按时间衰减的热度分数（约等于一个半衰期内的下载次数）
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class TrendingNoteResponse extends NoteResponse {
+    private double score;
+
+    public TrendingNoteResponse(NoteResponse note, double score) {
+        super(note);
+        this.score = score;
+    }
+}
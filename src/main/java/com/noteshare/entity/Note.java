@@ -24,6 +24,10 @@ public class Note {
     @Column(name = "file_path", nullable = false)
     private String filePath;
 
+    // 内容SHA-256，对应StorageBackend中的对象；为空表示早期直接存放在file_path的文件
+    @Column(name = "storage_key", length = 64)
+    private String storageKey;
+
     @Column(name = "file_size", nullable = false)
     private Long fileSize;
 
@@ -38,6 +42,18 @@ public class Note {
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
+    // 预览图（图片缩略图或PDF首页）在StorageBackend中的存储键
+    @Column(name = "preview_key", length = 64)
+    private String previewKey;
+
+    // 默认值让已有数据在加列时直接成为READY
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", columnDefinition = "varchar(10) default 'READY'")
+    private NoteStatus status = NoteStatus.READY;
+
+    @Column(name = "failure_reason", length = 200)
+    private String failureReason;
+
     @Column(name = "download_count")
     private Integer downloadCount = 0;
 
@@ -0,0 +1,28 @@
+package com.noteshare.entity;
+
+import lombok.Data;
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+// 笔记变更日志的一条记录，id即变更序号；只通过NoteChangeRepository的JDBC方法写入
+@Entity
+@Table(name = "note_change")
+@Data
+public class NoteChange {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "note_id", nullable = false)
+    private Long noteId;
+
+    @Column(name = "course_id", nullable = false)
+    private Long courseId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", nullable = false, length = 10)
+    private NoteChangeType type;
+
+    @Column(name = "changed_time", nullable = false)
+    private LocalDateTime changedTime;
+}
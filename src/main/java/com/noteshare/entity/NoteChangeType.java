@@ -0,0 +1,7 @@
+package com.noteshare.entity;
+
+// 笔记变更类型：UPSERT为新增或内容变化（目前是下载次数），DELETE为删除留下的墓碑
+public enum NoteChangeType {
+    UPSERT,
+    DELETE
+}
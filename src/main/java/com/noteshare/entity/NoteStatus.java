@@ -0,0 +1,8 @@
+package com.noteshare.entity;
+
+// 笔记处理状态：上传后先为PENDING，后台处理完成后变为READY，校验或处理失败为FAILED
+public enum NoteStatus {
+    PENDING,
+    READY,
+    FAILED
+}
@@ -0,0 +1,10 @@
+package com.noteshare.event;
+
+import lombok.Data;
+import java.util.Map;
+
+// 下载计数批量写回数据库后发布，deltas为笔记id -> 本次写回的增量
+@Data
+public class DownloadCountsFlushedEvent {
+    private final Map<Long, Long> deltas;
+}
@@ -0,0 +1,15 @@
+package com.noteshare.event;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// 笔记上传成功并入库后发布
+@Data
+public class NoteCreatedEvent {
+    private final Long noteId;
+    private final Long courseId;
+    private final Long userId;
+    private final long fileSize;
+    private final LocalDateTime createdTime;
+}
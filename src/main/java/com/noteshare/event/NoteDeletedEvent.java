@@ -0,0 +1,16 @@
+package com.noteshare.event;
+
+import com.noteshare.entity.NoteStatus;
+import lombok.Data;
+
+// 笔记删除后发布；status为删除前的状态，只有READY的笔记计入过统计
+@Data
+public class NoteDeletedEvent {
+    private final Long noteId;
+    private final Long courseId;
+    private final Long userId;
+    private final NoteStatus status;
+    private final long fileSize;
+    // 删除时已写回数据库的下载次数
+    private final int downloadCount;
+}
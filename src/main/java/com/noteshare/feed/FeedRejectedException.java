@@ -0,0 +1,8 @@
+package com.noteshare.feed;
+
+// 实时推送连接数已满，控制器据此返回429
+public class FeedRejectedException extends RuntimeException {
+    public FeedRejectedException(String message) {
+        super(message);
+    }
+}
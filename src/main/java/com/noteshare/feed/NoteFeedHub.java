@@ -0,0 +1,403 @@
+package com.noteshare.feed;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.noteshare.dto.NoteFeedEvent;
+import com.noteshare.event.DownloadCountsFlushedEvent;
+import com.noteshare.event.NoteCreatedEvent;
+import com.noteshare.event.NoteDeletedEvent;
+import com.noteshare.repository.NoteRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// 笔记实时推送（SSE）：按课程订阅笔记的新增、删除和下载次数变化，代替客户端轮询列表。
+// 连接由Servlet异步请求持有，空闲时不占线程。发布事件只记入所属课程的待发批次，不遍历订阅者；
+// 定时把每个课程的批次合并成一帧、只序列化一次，放入各订阅者的有界发件箱，由少量发送线程写出。
+// 同一笔记在一个批次内的多次变化合并为一条。发件箱积压满、或一次写入超过feed.send-timeout-ms的慢客户端直接断开，
+// 客户端（EventSource）自动重连后应重新拉取列表；卡在写入上的发送线程由临时补充的线程顶替，不拖慢其他连接。
+// 上传、删除和计数写回线程都不会因为推送而阻塞
+@Component
+public class NoteFeedHub {
+
+    // 订阅全站的范围键；课程id从1开始
+    private static final long ALL_COURSES = 0L;
+
+    // 断线后客户端（EventSource）按retry间隔自动重连
+    private static final Frame CONNECTED = () -> SseEmitter.event().reconnectTime(5000).comment("connected");
+
+    private static final Frame HEARTBEAT = () -> SseEmitter.event().comment("ping");
+
+    // 同时保持的推送连接数上限，超出时返回429
+    @Value("${feed.max-connections:5000}")
+    private int maxConnections;
+
+    // 每个连接最多积压的帧数
+    @Value("${feed.max-pending:64}")
+    private int maxPending;
+
+    @Value("${feed.heartbeat-ms:30000}")
+    private long heartbeatMillis;
+
+    // 连接最长保持时间，到期后由客户端重连
+    @Value("${feed.timeout-ms:1800000}")
+    private long timeoutMillis;
+
+    @Value("${feed.send-threads:4}")
+    private int sendThreads;
+
+    // 一次写入的最长时间，超过后断开该连接
+    @Value("${feed.send-timeout-ms:5000}")
+    private long sendTimeoutMillis;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // 范围 -> 订阅者
+    private final Map<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    private final AtomicInteger connections = new AtomicInteger();
+
+    private final Object pendingLock = new Object();
+
+    // 课程 -> 笔记id -> 本批次内合并后的变化
+    private Map<Long, Map<Long, NoteFeedEvent>> pending = new HashMap<>();
+
+    private long lastHeartbeat;
+
+    private ObjectWriter writer;
+
+    private ThreadPoolExecutor senders;
+
+    // 顶替卡住发送的临时线程数，最多sendThreads个
+    private final AtomicInteger extraSenders = new AtomicInteger();
+
+    private Counter events;
+
+    private Counter dropped;
+
+    private Counter rejected;
+
+    @PostConstruct
+    public void init() {
+        // 一帧的data必须在一行内
+        writer = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+        senders = new ThreadPoolExecutor(sendThreads, sendThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new CustomizableThreadFactory("note-feed-"));
+        events = meterRegistry.counter("note.feed.events");
+        dropped = meterRegistry.counter("note.feed.dropped");
+        rejected = meterRegistry.counter("note.feed.rejected");
+        Gauge.builder("note.feed.connections", connections, AtomicInteger::get).register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+        subscribers.values().forEach(scoped -> scoped.forEach(subscriber -> subscriber.emitter.complete()));
+    }
+
+    // courseId为null时订阅全站
+    public SseEmitter subscribe(Long courseId) {
+        if (connections.incrementAndGet() > maxConnections) {
+            connections.decrementAndGet();
+            rejected.increment();
+            throw new FeedRejectedException("实时推送连接数已满，请稍后重试");
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(courseId == null ? ALL_COURSES : courseId, emitter);
+        subscribers.computeIfAbsent(subscriber.scope, s -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> unsubscribe(subscriber));
+        subscriber.offer(CONNECTED);
+        return emitter;
+    }
+
+    @EventListener
+    public void onNoteCreated(NoteCreatedEvent event) {
+        record(new NoteFeedEvent(NoteFeedEvent.Type.CREATED, event.getNoteId(), event.getCourseId(), null));
+    }
+
+    @EventListener
+    public void onNoteDeleted(NoteDeletedEvent event) {
+        record(new NoteFeedEvent(NoteFeedEvent.Type.DELETED, event.getNoteId(), event.getCourseId(), null));
+    }
+
+    // 写回后的下载次数需要查一次数据库，没有订阅者时跳过
+    @EventListener
+    public void onDownloadCountsFlushed(DownloadCountsFlushedEvent event) {
+        if (connections.get() == 0 || event.getDeltas().isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(event.getDeltas().keySet());
+        for (int from = 0; from < ids.size(); from += 500) {
+            for (Object[] row : noteRepository.findCourseDownloadCounts(ids.subList(from, Math.min(from + 500, ids.size())))) {
+                record(new NoteFeedEvent(NoteFeedEvent.Type.DOWNLOADS, (Long) row[0], (Long) row[1], (Integer) row[2]));
+            }
+        }
+    }
+
+    // 把待发批次按课程合并成帧分发；全站订阅者收到所有课程的变化
+    @Scheduled(fixedDelayString = "${feed.coalesce-ms:500}")
+    public void dispatch() {
+        Map<Long, Map<Long, NoteFeedEvent>> batches;
+        synchronized (pendingLock) {
+            batches = pending;
+            pending = new HashMap<>();
+        }
+        if (!batches.isEmpty()) {
+            List<NoteFeedEvent> all = new ArrayList<>();
+            batches.forEach((courseId, batch) -> {
+                all.addAll(batch.values());
+                fanOut(courseId, batch.values());
+            });
+            fanOut(ALL_COURSES, all);
+        }
+
+        // 写入超时的连接：断开，并补一个线程顶替卡住的发送线程，直到它的写入返回（Tomcat写超时）
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
+        long nanos = System.nanoTime();
+        subscribers.values().forEach(scoped -> scoped.forEach(subscriber -> {
+            Send send = subscriber.current;
+            if (send == null || nanos - send.started <= timeoutNanos || send.state.get() != Send.SENDING) {
+                return;
+            }
+            // 已补满sendThreads个时不再占名额，只断开连接
+            boolean covered = extraSenders.getAndUpdate(n -> n < sendThreads ? n + 1 : n) < sendThreads;
+            if (send.state.compareAndSet(Send.SENDING, covered ? Send.STALLED_COVERED : Send.STALLED)) {
+                if (covered) {
+                    resizeSenders(1);
+                }
+                subscriber.drop();
+            } else if (covered) {
+                extraSenders.decrementAndGet();
+            }
+        }));
+
+        // 上一轮心跳之后没有发送过的连接发一条注释行，防止代理断开空闲连接，也借此发现已断开的客户端
+        long now = System.currentTimeMillis();
+        if (now - lastHeartbeat >= heartbeatMillis) {
+            long since = lastHeartbeat;
+            subscribers.values().forEach(scoped -> scoped.forEach(subscriber -> {
+                if (subscriber.lastSent < since) {
+                    subscriber.offer(HEARTBEAT);
+                }
+            }));
+            lastHeartbeat = now;
+        }
+    }
+
+    // 新增后又删除的直接抵消；下载次数只保留最新值，新增还未发出时不再单独推送次数
+    private void record(NoteFeedEvent event) {
+        if (connections.get() == 0) {
+            return;
+        }
+        events.increment();
+        synchronized (pendingLock) {
+            Map<Long, NoteFeedEvent> batch = pending.computeIfAbsent(event.getCourseId(), c -> new LinkedHashMap<>());
+            NoteFeedEvent previous = batch.get(event.getNoteId());
+            if (previous == null) {
+                batch.put(event.getNoteId(), event);
+            } else if (event.getType() == NoteFeedEvent.Type.DELETED) {
+                if (previous.getType() == NoteFeedEvent.Type.CREATED) {
+                    batch.remove(event.getNoteId());
+                } else {
+                    batch.put(event.getNoteId(), event);
+                }
+            } else if (previous.getType() == NoteFeedEvent.Type.DOWNLOADS) {
+                batch.put(event.getNoteId(), event);
+            }
+        }
+    }
+
+    private void fanOut(long scope, Collection<NoteFeedEvent> batch) {
+        Set<Subscriber> scoped = subscribers.get(scope);
+        if (scoped == null || scoped.isEmpty() || batch.isEmpty()) {
+            return;
+        }
+        String json;
+        try {
+            json = writer.writeValueAsString(batch);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+        Frame frame = () -> SseEmitter.event().name("notes").data(json, MediaType.APPLICATION_JSON);
+        scoped.forEach(subscriber -> subscriber.offer(frame));
+    }
+
+    // 先加最大值再加核心数，减时相反；加核心数时会立即起线程处理排队的发送任务
+    private void resizeSenders(int delta) {
+        synchronized (senders) {
+            int size = senders.getCorePoolSize() + delta;
+            if (delta > 0) {
+                senders.setMaximumPoolSize(size);
+                senders.setCorePoolSize(size);
+            } else {
+                senders.setCorePoolSize(size);
+                senders.setMaximumPoolSize(size);
+            }
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        Set<Subscriber> scoped = subscribers.get(subscriber.scope);
+        if (scoped != null && scoped.remove(subscriber)) {
+            connections.decrementAndGet();
+        }
+    }
+
+    private class Subscriber {
+        private final long scope;
+        private final SseEmitter emitter;
+        private final ArrayDeque<Frame> outbox = new ArrayDeque<>();
+        // 同一连接同一时间最多一个发送任务，保证帧按顺序写出
+        private final AtomicBoolean sending = new AtomicBoolean();
+        // 正在进行的写入，没有在写时为null
+        private volatile Send current;
+        private volatile boolean closed;
+        private volatile long lastSent = System.currentTimeMillis();
+
+        private Subscriber(long scope, SseEmitter emitter) {
+            this.scope = scope;
+            this.emitter = emitter;
+        }
+
+        // 积压满时断开连接；调用方不会阻塞
+        private void offer(Frame frame) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                if (outbox.size() >= maxPending) {
+                    drop();
+                    return;
+                }
+                outbox.add(frame);
+            }
+            schedule();
+        }
+
+        // 不再接收新帧，连接由发送线程在当前写入返回后关闭：
+        // emitter的方法都会等正在进行的写入，不能在调用方线程上直接complete()
+        private void drop() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                outbox.clear();
+            }
+            dropped.increment();
+            unsubscribe(this);
+            schedule();
+        }
+
+        private synchronized Frame poll() {
+            return outbox.poll();
+        }
+
+        private synchronized boolean hasPending() {
+            return !outbox.isEmpty();
+        }
+
+        private void schedule() {
+            if (sending.compareAndSet(false, true)) {
+                try {
+                    senders.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    sending.set(false);
+                }
+            }
+        }
+
+        // 客户端不读数据时写入会阻塞到Tomcat写超时；超过feed.send-timeout-ms后dispatch()断开连接并补线程顶替
+        private void drain() {
+            try {
+                Frame frame;
+                while (!closed && (frame = poll()) != null) {
+                    Send send = new Send();
+                    current = send;
+                    try {
+                        emitter.send(frame.event());
+                    } finally {
+                        current = null;
+                        send.finish();
+                    }
+                    lastSent = System.currentTimeMillis();
+                }
+                if (closed) {
+                    emitter.complete();
+                    return;
+                }
+            } catch (IOException | IllegalStateException e) {
+                unsubscribe(this);
+                emitter.completeWithError(e);
+                return;
+            } finally {
+                sending.set(false);
+            }
+            // 发送期间新加入的帧
+            if (hasPending()) {
+                schedule();
+            }
+        }
+    }
+
+    // 一次写入；判定为卡住并补了线程的写入返回后撤掉补的线程
+    private class Send {
+        private static final int SENDING = 0;
+        private static final int DONE = 1;
+        private static final int STALLED = 2;
+        private static final int STALLED_COVERED = 3;
+
+        private final long started = System.nanoTime();
+        private final AtomicInteger state = new AtomicInteger(SENDING);
+
+        private void finish() {
+            if (state.getAndSet(DONE) == STALLED_COVERED) {
+                extraSenders.decrementAndGet();
+                resizeSenders(-1);
+            }
+        }
+    }
+
+    // 多个连接共用的一帧，内容只序列化一次；SseEventBuilder有状态（build()会追加结尾换行），每次发送现建一个
+    private interface Frame {
+        SseEmitter.SseEventBuilder event();
+    }
+}
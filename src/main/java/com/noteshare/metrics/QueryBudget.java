@@ -0,0 +1,16 @@
+package com.noteshare.metrics;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// 声明接口每次请求最多执行的SQL条数（JDBC层统计，含JdbcTemplate直接执行的语句）。
+// 超出时记录警告和指标；metrics.query-budget.strict=true时超出的那条SQL直接抛出QueryBudgetExceededException
+@Documented
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface QueryBudget {
+    int value();
+}
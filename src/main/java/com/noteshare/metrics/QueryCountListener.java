@@ -0,0 +1,56 @@
+package com.noteshare.metrics;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+import java.util.List;
+
+// 统计当前请求线程执行的SQL条数，用来发现N+1查询。挂在数据源代理上（见MetricsConfig），
+// 经Hibernate和JdbcTemplate执行的语句都计入，一次executeBatch算一条。
+// 只在begin/end之间计数，后台线程的查询不受影响
+public class QueryCountListener implements QueryExecutionListener {
+
+    private static final ThreadLocal<Counter> COUNTER = new ThreadLocal<>();
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        Counter counter = COUNTER.get();
+        if (counter != null && ++counter.count > counter.budget && counter.budget >= 0 && counter.strict) {
+            throw new QueryBudgetExceededException("SQL条数超出预算(" + counter.budget + "): " + counter.endpoint);
+        }
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    public static void begin() {
+        begin(-1, false, null);
+    }
+
+    // budget小于0表示不限制；strict为true时超出预算的那条SQL不执行，直接抛出异常
+    public static void begin(int budget, boolean strict, String endpoint) {
+        COUNTER.set(new Counter(budget, strict, endpoint));
+    }
+
+    // 返回begin之后执行的SQL条数（含strict模式下被拦下的那条），未调用begin时返回-1
+    public static int end() {
+        Counter counter = COUNTER.get();
+        COUNTER.remove();
+        return counter == null ? -1 : counter.count;
+    }
+
+    private static class Counter {
+        private final int budget;
+        private final boolean strict;
+        private final String endpoint;
+        private int count;
+
+        private Counter(int budget, boolean strict, String endpoint) {
+            this.budget = budget;
+            this.strict = strict;
+            this.endpoint = endpoint;
+        }
+    }
+}
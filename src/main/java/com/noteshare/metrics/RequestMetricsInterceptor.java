@@ -0,0 +1,95 @@
+package com.noteshare.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+// 每个请求执行的SQL条数，按接口记录分布：http.server.requests.queries{method, uri}；
+// 接口耗时由Spring Boot自带的http.server.requests计时。
+// 标注了@QueryBudget的接口超出预算时记录警告和http.server.requests.query-budget.exceeded。
+// 异步请求（如SSE推送）只统计建立连接的那次处理，异步结束时的再次分派不计数
+public class RequestMetricsInterceptor implements AsyncHandlerInterceptor {
+
+    private static final Logger log = LoggerFactory.getLogger(RequestMetricsInterceptor.class);
+
+    private final MeterRegistry meterRegistry;
+
+    private final boolean strict;
+
+    public RequestMetricsInterceptor(MeterRegistry meterRegistry, boolean strict) {
+        this.meterRegistry = meterRegistry;
+        this.strict = strict;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+        QueryBudget budget = findBudget(handler);
+        if (budget == null) {
+            QueryCountListener.begin();
+        } else {
+            QueryCountListener.begin(budget.value(), strict, request.getMethod() + " " + uri(request));
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response,
+                                Object handler, Exception ex) {
+        record(request, handler);
+    }
+
+    // 开始异步处理后不会再调用afterCompletion，在这里结束计数，避免计数器留在容器线程上
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        record(request, handler);
+    }
+
+    private void record(HttpServletRequest request, Object handler) {
+        int queries = QueryCountListener.end();
+        if (queries < 0) {
+            return;
+        }
+        String uri = uri(request);
+        DistributionSummary.builder("http.server.requests.queries")
+                .description("JDBC statements executed per request")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(queries);
+
+        QueryBudget budget = findBudget(handler);
+        if (budget != null && queries > budget.value()) {
+            log.warn("接口SQL条数超出预算: {} {}, 执行{}条, 预算{}条", request.getMethod(), uri, queries, budget.value());
+            meterRegistry.counter("http.server.requests.query-budget.exceeded",
+                    "method", request.getMethod(), "uri", uri).increment();
+        }
+    }
+
+    private QueryBudget findBudget(Object handler) {
+        if (!(handler instanceof HandlerMethod)) {
+            return null;
+        }
+        HandlerMethod method = (HandlerMethod) handler;
+        QueryBudget budget = AnnotatedElementUtils.findMergedAnnotation(method.getMethod(), QueryBudget.class);
+        return budget != null ? budget : AnnotatedElementUtils.findMergedAnnotation(method.getBeanType(), QueryBudget.class);
+    }
+
+    private String uri(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern == null ? "UNKNOWN" : pattern.toString();
+    }
+}
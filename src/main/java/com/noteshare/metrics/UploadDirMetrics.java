@@ -0,0 +1,77 @@
+package com.noteshare.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.DiskSpaceMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 上传目录占用：定时遍历统计文件数和字节数（遍历代价较高，不在抓取时计算），
+// 所在磁盘的剩余/总空间由DiskSpaceMetrics提供
+@Component
+public class UploadDirMetrics {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadDirMetrics.class);
+
+    @Value("${file.upload-dir:uploads}")
+    private String uploadDir;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final AtomicLong usedBytes = new AtomicLong();
+    private final AtomicLong fileCount = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        Path root = Paths.get(uploadDir).toAbsolutePath();
+        new DiskSpaceMetrics(root.toFile()).bindTo(meterRegistry);
+        Gauge.builder("file.upload-dir.used", usedBytes, AtomicLong::get)
+                .baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("file.upload-dir.files", fileCount, AtomicLong::get).register(meterRegistry);
+    }
+
+    @Scheduled(initialDelay = 10_000, fixedDelayString = "${metrics.upload-dir.scan-interval-ms:300000}")
+    public void scan() {
+        Path root = Paths.get(uploadDir);
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        long[] totals = new long[2];
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    totals[0] += attrs.size();
+                    totals[1]++;
+                    return FileVisitResult.CONTINUE;
+                }
+
+                // 上传和删除并发进行，遍历中途消失的文件忽略即可
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            log.warn("统计上传目录占用失败: {}", e.getMessage());
+            return;
+        }
+        usedBytes.set(totals[0]);
+        fileCount.set(totals[1]);
+    }
+}
@@ -0,0 +1,181 @@
+package com.noteshare.perf;
+
+import com.noteshare.auth.PasswordHasher;
+import com.noteshare.search.NoteSearchService;
+import com.noteshare.storage.StorageBackend;
+import com.noteshare.storage.StoredBlob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// 压测数据生成（perf profile）：空库启动时批量生成用户、课程和笔记。
+// 文件大小按对数正态分布生成，少量真实文件由多条笔记共享（按内容寻址只存一份），
+// 下载次数按幂律分布，少数热门笔记占大部分下载
+@Component
+@Profile("perf")
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class PerfDataGenerator implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(PerfDataGenerator.class);
+
+    // 压测账号统一使用的密码，用户名为 perf-user-<序号>
+    public static final String PASSWORD = "perf-password";
+
+    private static final String[] COURSES = {
+            "高等数学", "线性代数", "概率论与数理统计", "大学物理", "大学英语", "数据结构", "操作系统",
+            "计算机网络", "数据库原理", "编译原理", "软件工程", "离散数学", "电路分析", "信号与系统",
+            "马克思主义基本原理", "中国近现代史纲要", "微观经济学", "管理学原理", "有机化学", "细胞生物学"};
+    private static final String[] TOPICS = {
+            "期末复习", "课堂笔记", "习题答案", "知识点总结", "真题解析", "实验报告", "思维导图", "公式汇总"};
+    private static final int BATCH_SIZE = 1000;
+
+    @Value("${perf.data.users:500}")
+    private int userCount;
+
+    @Value("${perf.data.notes:20000}")
+    private int noteCount;
+
+    // 不同内容的文件数，笔记在其中随机选取
+    @Value("${perf.data.distinct-files:120}")
+    private int distinctFiles;
+
+    @Value("${perf.data.seed:42}")
+    private long seed;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Autowired
+    private NoteSearchService noteSearchService;
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        Integer existing = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM note", Integer.class);
+        if (existing != null && existing > 0) {
+            log.info("数据库已有{}条笔记，跳过压测数据生成", existing);
+            return;
+        }
+        long start = System.currentTimeMillis();
+        Random random = new Random(seed);
+
+        List<Long> courseIds = insertCourses();
+        List<Long> userIds = insertUsers();
+        List<SampleFile> files = storeFiles(random);
+        insertNotes(random, courseIds, userIds, files);
+
+        // 清空上次运行留下的索引，由SearchIndexRebuildRunner按新数据重建
+        noteSearchService.rebuild(List.of());
+        log.info("压测数据生成完成: {}个用户, {}门课程, {}条笔记, {}个文件, 耗时{}ms",
+                userIds.size(), courseIds.size(), noteCount, files.size(), System.currentTimeMillis() - start);
+    }
+
+    private List<Long> insertCourses() {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < COURSES.length; i++) {
+            rows.add(new Object[]{COURSES[i], String.format("PERF%03d", i + 1), Timestamp.valueOf(LocalDateTime.now())});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO course (name, code, created_time) VALUES (?, ?, ?)", rows);
+        return jdbcTemplate.queryForList("SELECT id FROM course ORDER BY id", Long.class);
+    }
+
+    // 所有压测账号共用一个密码哈希，只计算一次
+    private List<Long> insertUsers() {
+        String passwordHash = passwordHasher.hash(PASSWORD);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 1; i <= userCount; i++) {
+            rows.add(new Object[]{"perf-user-" + i, passwordHash, "perf-user-" + i + "@example.com",
+                    Timestamp.valueOf(LocalDateTime.now())});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO user (username, password, email, created_time) VALUES (?, ?, ?, ?)", rows);
+        return jdbcTemplate.queryForList("SELECT id FROM user ORDER BY id", Long.class);
+    }
+
+    // PDF约占六成，中位数约600KB；手机拍照的图片中位数约1.5MB；均不超过10MB上传上限
+    private List<SampleFile> storeFiles(Random random) throws IOException {
+        List<SampleFile> files = new ArrayList<>();
+        for (int i = 0; i < distinctFiles; i++) {
+            double kind = random.nextDouble();
+            String type;
+            byte[] content;
+            if (kind < 0.6) {
+                type = "pdf";
+                content = SyntheticFiles.pdf("Lecture notes " + i, logNormal(random, 600_000, 1.0), random);
+            } else if (kind < 0.9) {
+                type = "jpg";
+                content = SyntheticFiles.image("jpg", logNormal(random, 1_500_000, 0.5), random);
+            } else {
+                type = "png";
+                content = SyntheticFiles.image("png", logNormal(random, 400_000, 0.8), random);
+            }
+            files.add(new SampleFile(type, storageBackend.store(new ByteArrayInputStream(content))));
+        }
+        return files;
+    }
+
+    private void insertNotes(Random random, List<Long> courseIds, List<Long> userIds, List<SampleFile> files) {
+        String sql = "INSERT INTO note (title, description, file_name, file_path, storage_key, file_size, file_type, "
+                + "course_id, user_id, status, download_count, created_time) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, 'READY', ?, ?)";
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 1; i <= noteCount; i++) {
+            int course = random.nextInt(courseIds.size());
+            SampleFile file = files.get(random.nextInt(files.size()));
+            String topic = TOPICS[random.nextInt(TOPICS.length)];
+            // 创建时间分布在最近一年内，越近越密集
+            LocalDateTime createdTime = now.minusSeconds((long) (365L * 24 * 3600 * Math.pow(random.nextDouble(), 2)));
+            batch.add(new Object[]{
+                    COURSES[course] + topic + "（第" + (random.nextInt(16) + 1) + "章）",
+                    COURSES[course] + "的" + topic + "，整理自课堂讲义和参考教材",
+                    topic + "-" + i + "." + file.type,
+                    file.blob.getLocation(),
+                    file.blob.getKey(),
+                    file.blob.getSize(),
+                    file.type,
+                    courseIds.get(course),
+                    userIds.get(random.nextInt(userIds.size())),
+                    (int) Math.min(100_000, Math.floor(Math.pow(1 - random.nextDouble(), -1.5)) - 1),
+                    Timestamp.valueOf(createdTime)});
+            if (batch.size() == BATCH_SIZE || i == noteCount) {
+                jdbcTemplate.batchUpdate(sql, batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private long logNormal(Random random, double median, double sigma) {
+        double size = median * Math.exp(sigma * random.nextGaussian());
+        return (long) Math.max(20_000, Math.min(9_500_000, size));
+    }
+
+    private static class SampleFile {
+        private final String type;
+        private final StoredBlob blob;
+
+        private SampleFile(String type, StoredBlob blob) {
+            this.type = type;
+            this.blob = blob;
+        }
+    }
+}
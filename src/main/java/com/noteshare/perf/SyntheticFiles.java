@@ -0,0 +1,65 @@
+package com.noteshare.perf;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+// 生成能通过文件头校验、可被解析的测试文件。内容是随机噪点，几乎不可压缩，
+// 像素数按目标大小估算，生成的文件大小与目标接近
+final class SyntheticFiles {
+
+    private SyntheticFiles() {
+    }
+
+    // 扫描件式PDF：一行可检索的文字加一张整页噪点图
+    static byte[] pdf(String text, long targetSize, Random random) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            PDPage page = new PDPage(PDRectangle.A4);
+            document.addPage(page);
+            PDImageXObject image = LosslessFactory.createFromImage(document, noise(targetSize / 3, random));
+            try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                content.drawImage(image, 50, 50, 495, 680);
+                content.beginText();
+                content.setFont(PDType1Font.HELVETICA, 12);
+                content.newLineAtOffset(50, 780);
+                content.showText(text);
+                content.endText();
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream((int) targetSize + 4096);
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    // format为ImageIO格式名：png按每像素3字节估算，jpg噪点图约每像素2字节
+    static byte[] image(String format, long targetSize, Random random) throws IOException {
+        long pixels = "png".equals(format) ? targetSize / 3 : targetSize / 2;
+        ByteArrayOutputStream out = new ByteArrayOutputStream((int) targetSize + 4096);
+        ImageIO.write(noise(pixels, random), "jpg".equals(format) ? "jpeg" : format, out);
+        return out.toByteArray();
+    }
+
+    private static BufferedImage noise(long pixels, Random random) {
+        int width = (int) Math.max(16, Math.sqrt(pixels * 4 / 3.0));
+        int height = (int) Math.max(16, pixels / width);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                row[x] = random.nextInt(0x1000000);
+            }
+            image.setRGB(0, y, width, 1, row, 0, width);
+        }
+        return image;
+    }
+}
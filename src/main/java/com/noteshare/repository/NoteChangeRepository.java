@@ -0,0 +1,37 @@
+package com.noteshare.repository;
+
+import com.noteshare.entity.NoteChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface NoteChangeRepository extends JpaRepository<NoteChange, Long>, NoteChangeRepositoryCustom {
+
+    // 令牌之后、已可见的变更，按序号升序
+    @Query("select c from NoteChange c where c.id > :afterId and c.changedTime < :visibleBefore order by c.id")
+    List<NoteChange> findAfter(@Param("afterId") Long afterId,
+                               @Param("visibleBefore") LocalDateTime visibleBefore,
+                               Pageable pageable);
+
+    @Query("select c from NoteChange c where c.courseId = :courseId and c.id > :afterId " +
+            "and c.changedTime < :visibleBefore order by c.id")
+    List<NoteChange> findByCourseAfter(@Param("courseId") Long courseId,
+                                       @Param("afterId") Long afterId,
+                                       @Param("visibleBefore") LocalDateTime visibleBefore,
+                                       Pageable pageable);
+
+    // 全量同步后客户端的起点
+    @Query("select max(c.id) from NoteChange c where c.changedTime < :visibleBefore")
+    Long findLatestIdBefore(@Param("visibleBefore") LocalDateTime visibleBefore);
+
+    // 同一笔记已有更新且已可见的记录覆盖的旧记录；删除它们不改变任何令牌的同步结果
+    @Query("select c.id from NoteChange c where exists (select n.id from NoteChange n " +
+            "where n.noteId = c.noteId and n.id > c.id and n.changedTime < :visibleBefore) order by c.id")
+    List<Long> findSupersededIds(@Param("visibleBefore") LocalDateTime visibleBefore, Pageable pageable);
+}
@@ -0,0 +1,20 @@
+package com.noteshare.repository;
+
+import com.noteshare.entity.NoteChangeType;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+
+public interface NoteChangeRepositoryCustom {
+
+    void record(Long noteId, Long courseId, NoteChangeType type, LocalDateTime changedTime);
+
+    // 为仍存在的笔记各记一条UPSERT，所属课程在同一条INSERT ... SELECT中从note表取
+    void recordUpserts(Collection<Long> noteIds, LocalDateTime changedTime);
+
+    // 为一批已删除的笔记各记一条DELETE，每CHUNK_SIZE条一条多行INSERT；noteCourseIds为笔记id到课程id
+    void recordDeletes(Map<Long, Long> noteCourseIds, LocalDateTime changedTime);
+
+    int deleteOlderThan(LocalDateTime cutoff);
+}
@@ -0,0 +1,72 @@
+package com.noteshare.repository;
+
+import com.noteshare.entity.NoteChangeType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+// 变更记录由笔记事件写入，走JDBC：一条INSERT即可（在请求线程上写入时计入请求的SQL条数）
+public class NoteChangeRepositoryImpl implements NoteChangeRepositoryCustom {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO note_change (note_id, course_id, type, changed_time) VALUES (?, ?, ?, ?)";
+
+    private static final String INSERT_ROWS_SQL = "INSERT INTO note_change (note_id, course_id, type, changed_time) VALUES %s";
+
+    private static final String INSERT_UPSERTS_SQL = "INSERT INTO note_change (note_id, course_id, type, changed_time) "
+            + "SELECT id, course_id, '" + NoteChangeType.UPSERT.name() + "', ? FROM note WHERE id IN (%s)";
+
+    // 每条INSERT ... SELECT的id数
+    private static final int CHUNK_SIZE = 500;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void record(Long noteId, Long courseId, NoteChangeType type, LocalDateTime changedTime) {
+        jdbcTemplate.update(INSERT_SQL, noteId, courseId, type.name(), Timestamp.valueOf(changedTime));
+    }
+
+    @Override
+    public void recordUpserts(Collection<Long> noteIds, LocalDateTime changedTime) {
+        List<Long> ids = new ArrayList<>(noteIds);
+        for (int from = 0; from < ids.size(); from += CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + CHUNK_SIZE, ids.size()));
+            List<Object> args = new ArrayList<>(chunk.size() + 1);
+            args.add(Timestamp.valueOf(changedTime));
+            args.addAll(chunk);
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            jdbcTemplate.update(String.format(INSERT_UPSERTS_SQL, placeholders), args.toArray());
+        }
+    }
+
+    @Override
+    public void recordDeletes(Map<Long, Long> noteCourseIds, LocalDateTime changedTime) {
+        List<Map.Entry<Long, Long>> entries = new ArrayList<>(noteCourseIds.entrySet());
+        Timestamp time = Timestamp.valueOf(changedTime);
+        for (int from = 0; from < entries.size(); from += CHUNK_SIZE) {
+            List<Map.Entry<Long, Long>> chunk = entries.subList(from, Math.min(from + CHUNK_SIZE, entries.size()));
+            List<Object> args = new ArrayList<>(chunk.size() * 4);
+            for (Map.Entry<Long, Long> entry : chunk) {
+                args.add(entry.getKey());
+                args.add(entry.getValue());
+                args.add(NoteChangeType.DELETE.name());
+                args.add(time);
+            }
+            String rows = String.join(", ", Collections.nCopies(chunk.size(), "(?, ?, ?, ?)"));
+            jdbcTemplate.update(String.format(INSERT_ROWS_SQL, rows), args.toArray());
+        }
+    }
+
+    @Override
+    public int deleteOlderThan(LocalDateTime cutoff) {
+        return jdbcTemplate.update("DELETE FROM note_change WHERE changed_time < ?", Timestamp.valueOf(cutoff));
+    }
+}
@@ -1,14 +1,120 @@
 package com.noteshare.repository;
 
+import com.noteshare.dto.NoteFileRow;
+import com.noteshare.dto.NoteResponse;
 import com.noteshare.entity.Note;
+import com.noteshare.entity.NoteStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface NoteRepository extends JpaRepository<Note, Long> {
-    List<Note> findAllByOrderByCreatedTimeDesc();
-    List<Note> findByCourseIdOrderByCreatedTimeDesc(Long courseId);
-    List<Note> findByUserIdOrderByCreatedTimeDesc(Long userId);
+public interface NoteRepository extends JpaRepository<Note, Long>, NoteRepositoryCustom {
     List<Note> findByTitleContainingIgnoreCaseOrderByCreatedTimeDesc(String title);
-}
\ No newline at end of file
+    long countByStorageKey(String storageKey);
+    long countByPreviewKey(String previewKey);
+    List<Note> findByStatus(NoteStatus status);
+    List<Note> findByStatusAndCreatedTimeBefore(NoteStatus status, LocalDateTime before);
+
+    // 批量删除时一次查出笔记及其上传者，用于权限检查
+    @Query("select n from Note n join fetch n.course join fetch n.user where n.id in :ids")
+    List<Note> findAllWithOwnerByIdIn(@Param("ids") Collection<Long> ids);
+
+    // 给定的存储键中仍被笔记文件或预览图引用的部分
+    @Query("select distinct n.storageKey from Note n where n.storageKey in :keys")
+    List<String> findReferencedStorageKeys(@Param("keys") Collection<String> keys);
+
+    @Query("select distinct n.previewKey from Note n where n.previewKey in :keys")
+    List<String> findReferencedPreviewKeys(@Param("keys") Collection<String> keys);
+
+    // 重建检索索引时按id分批加载
+    @Query("select n from Note n join fetch n.course join fetch n.user " +
+            "where n.id > :afterId and n.status = com.noteshare.entity.NoteStatus.READY order by n.id")
+    List<Note> findBatchForIndexing(@Param("afterId") Long afterId, Pageable pageable);
+
+    // ===== 打包导出：按id顺序分批取READY笔记的文件信息 =====
+
+    String FILE_SELECT = "select new com.noteshare.dto.NoteFileRow(" +
+            "n.id, n.fileName, n.fileType, n.storageKey, n.filePath, n.fileSize) from Note n " +
+            "where n.status = com.noteshare.entity.NoteStatus.READY and n.id > :afterId ";
+
+    @Query(FILE_SELECT + "and n.course.id = :courseId order by n.id")
+    List<NoteFileRow> findFilesByCourseAfter(@Param("courseId") Long courseId,
+                                             @Param("afterId") Long afterId,
+                                             Pageable pageable);
+
+    @Query(FILE_SELECT + "and n.id in :ids order by n.id")
+    List<NoteFileRow> findFilesByIdInAfter(@Param("ids") Collection<Long> ids,
+                                           @Param("afterId") Long afterId,
+                                           Pageable pageable);
+
+    // ===== 统计：定时对账时按课程/上传者重新聚合 =====
+
+    // 每行：分组id、笔记数、总字节数、总下载次数、最近上传时间
+    @Query("select n.course.id, count(n), coalesce(sum(n.fileSize), 0), coalesce(sum(n.downloadCount), 0), " +
+            "max(n.createdTime) from Note n where n.status = com.noteshare.entity.NoteStatus.READY group by n.course.id")
+    List<Object[]> aggregateByCourse();
+
+    @Query("select n.user.id, count(n), coalesce(sum(n.fileSize), 0), coalesce(sum(n.downloadCount), 0), " +
+            "max(n.createdTime) from Note n where n.status = com.noteshare.entity.NoteStatus.READY group by n.user.id")
+    List<Object[]> aggregateByUser();
+
+    // 下载计数写回时找到笔记所属的课程和上传者
+    @Query("select n.id, n.course.id, n.user.id from Note n where n.id in :ids")
+    List<Object[]> findOwners(@Param("ids") Collection<Long> ids);
+
+    // 实时推送下载次数变化时取所属课程和写回后的次数
+    @Query("select n.id, n.course.id, n.downloadCount from Note n where n.id in :ids")
+    List<Object[]> findCourseDownloadCounts(@Param("ids") Collection<Long> ids);
+
+    @Query("select n.id, n.downloadCount from Note n where n.id in :ids")
+    List<Object[]> findDownloadCounts(@Param("ids") List<Long> ids);
+
+    // ===== 列表分页：按(created_time, id)倒序做游标分页，直接投影为NoteResponse，只列出READY的笔记 =====
+
+    String RESPONSE_SELECT = "select new com.noteshare.dto.NoteResponse(" +
+            "n.id, n.title, n.description, n.fileName, n.fileType, n.fileSize, " +
+            "n.downloadCount, n.createdTime, c.name, u.username, u.id) " +
+            "from Note n join n.course c join n.user u " +
+            "where n.status = com.noteshare.entity.NoteStatus.READY ";
+
+    String KEYSET_ORDER = " order by n.createdTime desc, n.id desc";
+
+    String BEFORE_CURSOR = "(n.createdTime < :cursorTime " +
+            "or (n.createdTime = :cursorTime and n.id < :cursorId))";
+
+    @Query(RESPONSE_SELECT + KEYSET_ORDER)
+    List<NoteResponse> findFirstPage(Pageable pageable);
+
+    // 热门榜单按id取笔记信息
+    @Query(RESPONSE_SELECT + "and n.id in :ids")
+    List<NoteResponse> findResponsesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(RESPONSE_SELECT + "and " + BEFORE_CURSOR + KEYSET_ORDER)
+    List<NoteResponse> findPageBefore(@Param("cursorTime") LocalDateTime cursorTime,
+                                      @Param("cursorId") Long cursorId,
+                                      Pageable pageable);
+
+    @Query(RESPONSE_SELECT + "and n.course.id = :courseId" + KEYSET_ORDER)
+    List<NoteResponse> findFirstPageByCourse(@Param("courseId") Long courseId, Pageable pageable);
+
+    @Query(RESPONSE_SELECT + "and n.course.id = :courseId and " + BEFORE_CURSOR + KEYSET_ORDER)
+    List<NoteResponse> findPageByCourseBefore(@Param("courseId") Long courseId,
+                                              @Param("cursorTime") LocalDateTime cursorTime,
+                                              @Param("cursorId") Long cursorId,
+                                              Pageable pageable);
+
+    @Query(RESPONSE_SELECT + "and n.user.id = :userId" + KEYSET_ORDER)
+    List<NoteResponse> findFirstPageByUser(@Param("userId") Long userId, Pageable pageable);
+
+    @Query(RESPONSE_SELECT + "and n.user.id = :userId and " + BEFORE_CURSOR + KEYSET_ORDER)
+    List<NoteResponse> findPageByUserBefore(@Param("userId") Long userId,
+                                            @Param("cursorTime") LocalDateTime cursorTime,
+                                            @Param("cursorId") Long cursorId,
+                                            Pageable pageable);
+}
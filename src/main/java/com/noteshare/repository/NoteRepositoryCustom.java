@@ -0,0 +1,17 @@
+package com.noteshare.repository;
+
+import com.noteshare.entity.Note;
+
+import java.util.List;
+
+public interface NoteRepositoryCustom {
+
+    // 在一个事务里用JDBC批量插入新笔记，并回填生成的id
+    void insertAll(List<Note> notes);
+
+    // 条件UPDATE：只在笔记仍为PENDING时改为READY并关联文件，返回是否更新（笔记已删除或已失败时为false）
+    boolean markReady(Long id, String filePath, String storageKey, long fileSize, String previewKey);
+
+    // 条件UPDATE：只在笔记仍为PENDING时改为FAILED
+    boolean markFailed(Long id, String reason);
+}
@@ -0,0 +1,88 @@
+package com.noteshare.repository;
+
+import com.noteshare.entity.Note;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// NoteRepository的自定义实现：IDENTITY主键下Hibernate不会批量插入，这里直接走JDBC批处理；
+// 上传状态的变更用条件UPDATE，不经过先查后存（merge一条已删除的笔记会把它重新插入）
+public class NoteRepositoryImpl implements NoteRepositoryCustom {
+
+    private static final String INSERT_SQL = "INSERT INTO note (title, description, file_name, file_path, file_size, "
+            + "file_type, course_id, user_id, status, download_count, created_time) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String MARK_READY_SQL = "UPDATE note SET file_path = ?, storage_key = ?, file_size = ?, "
+            + "preview_key = ?, status = 'READY' WHERE id = ? AND status = 'PENDING'";
+
+    private static final String MARK_FAILED_SQL =
+            "UPDATE note SET status = 'FAILED', failure_reason = ? WHERE id = ? AND status = 'PENDING'";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    @Transactional
+    public void insertAll(List<Note> notes) {
+        if (notes.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                for (Note note : notes) {
+                    note.setCreatedTime(now);
+                    if (note.getDownloadCount() == null) {
+                        note.setDownloadCount(0);
+                    }
+                    ps.setString(1, note.getTitle());
+                    if (note.getDescription() == null) {
+                        ps.setNull(2, Types.VARCHAR);
+                    } else {
+                        ps.setString(2, note.getDescription());
+                    }
+                    ps.setString(3, note.getFileName());
+                    ps.setString(4, note.getFilePath());
+                    ps.setLong(5, note.getFileSize());
+                    ps.setString(6, note.getFileType());
+                    ps.setLong(7, note.getCourse().getId());
+                    ps.setLong(8, note.getUser().getId());
+                    ps.setString(9, note.getStatus().name());
+                    ps.setInt(10, note.getDownloadCount());
+                    ps.setTimestamp(11, Timestamp.valueOf(now));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    int i = 0;
+                    while (keys.next() && i < notes.size()) {
+                        notes.get(i++).setId(keys.getLong(1));
+                    }
+                    if (i != notes.size()) {
+                        throw new IllegalStateException("批量插入返回的主键数量不符: " + i + "/" + notes.size());
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public boolean markReady(Long id, String filePath, String storageKey, long fileSize, String previewKey) {
+        return jdbcTemplate.update(MARK_READY_SQL, filePath, storageKey, fileSize, previewKey, id) > 0;
+    }
+
+    @Override
+    public boolean markFailed(Long id, String reason) {
+        return jdbcTemplate.update(MARK_FAILED_SQL, reason, id) > 0;
+    }
+}
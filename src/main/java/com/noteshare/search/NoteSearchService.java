@@ -0,0 +1,321 @@
+package com.noteshare.search;
+
+import com.noteshare.dto.NoteResponse;
+import com.noteshare.dto.NoteSearchResponse;
+import com.noteshare.entity.Note;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.cjk.CJKAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.facet.Facets;
+import org.apache.lucene.facet.FacetsCollector;
+import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.facet.LabelAndValue;
+import org.apache.lucene.facet.sortedset.DefaultSortedSetDocValuesReaderState;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetCounts;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetField;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+// 笔记全文检索：Lucene倒排索引存放在本地磁盘，索引标题、描述、课程名、上传者和PDF正文。
+// 每个节点各有一份索引，其他节点的增删由SearchIndexSync按变更日志补上
+@Service
+public class NoteSearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(NoteSearchService.class);
+
+    private static final String[] SEARCH_FIELDS = {"title", "description", "courseName", "uploaderName", "content"};
+    private static final Map<String, Float> FIELD_BOOSTS = Map.of(
+            "title", 4f, "courseName", 2f, "uploaderName", 2f, "description", 1.5f, "content", 1f);
+    private static final String COURSE_FACET = "course";
+    private static final String TYPE_FACET = "type";
+    private static final int FACET_TOP_N = 20;
+
+    @Value("${search.index-dir:index}")
+    private String indexDir;
+
+    @Autowired
+    private NoteTextExtractor textExtractor;
+
+    private final Analyzer analyzer = new CJKAnalyzer();
+    private final FacetsConfig facetsConfig = new FacetsConfig();
+
+    private Directory directory;
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+
+    // 分面统计需要的reader状态，构建成本较高，按reader缓存
+    private volatile FacetState facetState;
+
+    @PostConstruct
+    public void open() throws IOException {
+        directory = FSDirectory.open(Paths.get(indexDir));
+        IndexWriterConfig config = new IndexWriterConfig(analyzer);
+        config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+        writer = new IndexWriter(directory, config);
+        searcherManager = new SearcherManager(writer, null);
+    }
+
+    public void index(Note note) {
+        try {
+            writer.updateDocument(new Term("id", String.valueOf(note.getId())),
+                    facetsConfig.build(toDocument(note, textExtractor.extract(note))));
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            log.warn("更新检索索引失败: note={}, {}", note.getId(), e.getMessage());
+        }
+    }
+
+    public void delete(Collection<Long> noteIds) {
+        Term[] terms = new Term[noteIds.size()];
+        int i = 0;
+        for (Long noteId : noteIds) {
+            terms[i++] = new Term("id", String.valueOf(noteId));
+        }
+        try {
+            writer.deleteDocuments(terms);
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            log.warn("删除检索索引失败: notes={}, {}", noteIds, e.getMessage());
+        }
+    }
+
+    // 给定笔记中已在索引里的
+    public Set<Long> indexedIds(Collection<Long> noteIds) {
+        Set<Long> indexed = new HashSet<>();
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                for (Long noteId : noteIds) {
+                    if (searcher.count(new TermQuery(new Term("id", String.valueOf(noteId)))) > 0) {
+                        indexed.add(noteId);
+                    }
+                }
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("检索服务不可用");
+        }
+        return indexed;
+    }
+
+    public int numDocs() {
+        return writer.getDocStats().numDocs;
+    }
+
+    // 重建索引：由调用方分批提供全部笔记
+    public void rebuild(Iterable<List<Note>> batches) throws IOException {
+        writer.deleteAll();
+        int count = 0;
+        for (List<Note> batch : batches) {
+            for (Note note : batch) {
+                writer.addDocument(facetsConfig.build(toDocument(note, textExtractor.extract(note))));
+                count++;
+            }
+        }
+        writer.commit();
+        searcherManager.maybeRefresh();
+        log.info("检索索引重建完成: {}条笔记", count);
+    }
+
+    // 按相关度排序的检索，最后一个词同时做前缀匹配，可按课程和文件类型过滤
+    public NoteSearchResponse search(String keyword, Long courseId, String fileType, int page, int size) {
+        IndexSearcher searcher;
+        try {
+            searcher = searcherManager.acquire();
+        } catch (IOException e) {
+            throw new RuntimeException("检索服务不可用");
+        }
+        try {
+            BooleanQuery.Builder builder = new BooleanQuery.Builder();
+            builder.add(buildTextQuery(keyword), BooleanClause.Occur.MUST);
+            if (courseId != null) {
+                builder.add(new TermQuery(new Term("courseId", String.valueOf(courseId))), BooleanClause.Occur.FILTER);
+            }
+            if (fileType != null && !fileType.isEmpty()) {
+                builder.add(new TermQuery(new Term("fileType", fileType.toLowerCase(Locale.ROOT))), BooleanClause.Occur.FILTER);
+            }
+            Query query = builder.build();
+
+            FacetsCollector facetsCollector = new FacetsCollector();
+            TopDocs topDocs = FacetsCollector.search(searcher, query, (page + 1) * size, facetsCollector);
+
+            List<NoteResponse> items = new ArrayList<>();
+            ScoreDoc[] hits = topDocs.scoreDocs;
+            for (int i = page * size; i < hits.length; i++) {
+                items.add(toResponse(searcher.doc(hits[i].doc)));
+            }
+            return new NoteSearchResponse(items, topDocs.totalHits.value, facets(searcher.getIndexReader(), facetsCollector));
+        } catch (IOException e) {
+            throw new RuntimeException("检索失败: " + e.getMessage());
+        } finally {
+            try {
+                searcherManager.release(searcher);
+            } catch (IOException e) {
+                log.warn("释放检索器失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    // 索引变更只做NRT刷新，定期提交落盘；宕机丢失的部分可以用重建命令恢复
+    @Scheduled(fixedDelayString = "${search.commit-interval-ms:30000}")
+    public void commit() throws IOException {
+        if (writer.hasUncommittedChanges()) {
+            writer.commit();
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+
+    private Query buildTextQuery(String keyword) {
+        String text = keyword == null ? "" : keyword.trim();
+        if (text.isEmpty()) {
+            throw new RuntimeException("请输入检索关键词");
+        }
+        MultiFieldQueryParser parser = new MultiFieldQueryParser(SEARCH_FIELDS, analyzer, FIELD_BOOSTS);
+        parser.setDefaultOperator(QueryParser.Operator.AND);
+
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        try {
+            builder.add(parser.parse(QueryParser.escape(text)), BooleanClause.Occur.SHOULD);
+        } catch (ParseException e) {
+            throw new RuntimeException("检索关键词格式错误");
+        }
+
+        // 输入过程中的最后一个词按前缀匹配标题和课程名
+        String[] words = text.split("\\s+");
+        String last = words[words.length - 1].toLowerCase(Locale.ROOT);
+        builder.add(new BoostQuery(new PrefixQuery(new Term("title", last)), 0.5f), BooleanClause.Occur.SHOULD);
+        builder.add(new BoostQuery(new PrefixQuery(new Term("courseName", last)), 0.5f), BooleanClause.Occur.SHOULD);
+        builder.setMinimumNumberShouldMatch(1);
+        return builder.build();
+    }
+
+    private Map<String, Map<String, Integer>> facets(IndexReader reader, FacetsCollector collector) throws IOException {
+        Map<String, Map<String, Integer>> result = new LinkedHashMap<>();
+        FacetState state = facetState;
+        if (state == null || state.reader != reader) {
+            try {
+                state = new FacetState(reader, new DefaultSortedSetDocValuesReaderState(reader));
+            } catch (IllegalArgumentException e) {
+                // 索引为空时还没有分面字段
+                return result;
+            }
+            facetState = state;
+        }
+        Facets facets = new SortedSetDocValuesFacetCounts(state.state, collector);
+        for (String dim : List.of(COURSE_FACET, TYPE_FACET)) {
+            Map<String, Integer> counts = new LinkedHashMap<>();
+            FacetResult facet = facets.getTopChildren(FACET_TOP_N, dim);
+            if (facet != null) {
+                for (LabelAndValue lv : facet.labelValues) {
+                    counts.put(lv.label, lv.value.intValue());
+                }
+            }
+            result.put(dim, counts);
+        }
+        return result;
+    }
+
+    private Document toDocument(Note note, String content) {
+        Document doc = new Document();
+        doc.add(new StringField("id", String.valueOf(note.getId()), Field.Store.YES));
+        doc.add(new TextField("title", note.getTitle(), Field.Store.YES));
+        doc.add(new TextField("description", nullToEmpty(note.getDescription()), Field.Store.YES));
+        doc.add(new TextField("courseName", note.getCourse().getName(), Field.Store.YES));
+        doc.add(new TextField("uploaderName", note.getUser().getUsername(), Field.Store.YES));
+        doc.add(new TextField("content", content, Field.Store.NO));
+        doc.add(new StringField("courseId", String.valueOf(note.getCourse().getId()), Field.Store.YES));
+        doc.add(new StringField("fileType", note.getFileType(), Field.Store.YES));
+        doc.add(new StoredField("uploaderId", note.getUser().getId()));
+        doc.add(new StoredField("fileName", note.getFileName()));
+        doc.add(new StoredField("fileSize", note.getFileSize()));
+        if (note.getCreatedTime() != null) {
+            doc.add(new StoredField("createdTime", note.getCreatedTime().toString()));
+        }
+        doc.add(new SortedSetDocValuesFacetField(COURSE_FACET, note.getCourse().getName()));
+        doc.add(new SortedSetDocValuesFacetField(TYPE_FACET, note.getFileType()));
+        return doc;
+    }
+
+    // 直接用索引中存储的字段组装结果，不回表
+    private NoteResponse toResponse(Document doc) {
+        NoteResponse response = new NoteResponse();
+        response.setId(Long.valueOf(doc.get("id")));
+        response.setTitle(doc.get("title"));
+        response.setDescription(doc.get("description"));
+        response.setFileName(doc.get("fileName"));
+        response.setFileType(doc.get("fileType"));
+        response.setFileSize(doc.getField("fileSize").numericValue().longValue());
+        response.setCourseName(doc.get("courseName"));
+        response.setUploaderName(doc.get("uploaderName"));
+        response.setUploaderId(doc.getField("uploaderId").numericValue().longValue());
+        String createdTime = doc.get("createdTime");
+        if (createdTime != null) {
+            response.setCreatedTime(LocalDateTime.parse(createdTime));
+        }
+        return response;
+    }
+
+    private String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    private static class FacetState {
+        private final IndexReader reader;
+        private final SortedSetDocValuesReaderState state;
+
+        private FacetState(IndexReader reader, SortedSetDocValuesReaderState state) {
+            this.reader = reader;
+            this.state = state;
+        }
+    }
+}
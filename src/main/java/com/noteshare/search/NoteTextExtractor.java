@@ -0,0 +1,56 @@
+package com.noteshare.search;
+
+import com.noteshare.entity.Note;
+import com.noteshare.storage.StorageBackend;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+// 从笔记文件中提取可检索的文本，目前只处理PDF
+@Component
+public class NoteTextExtractor {
+
+    private static final Logger log = LoggerFactory.getLogger(NoteTextExtractor.class);
+
+    @Value("${search.pdf-max-pages:50}")
+    private int maxPages;
+
+    @Value("${search.max-content-chars:200000}")
+    private int maxChars;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    public String extract(Note note) {
+        if (!"pdf".equals(note.getFileType())) {
+            return "";
+        }
+        try (InputStream in = open(note);
+             PDDocument document = PDDocument.load(in, MemoryUsageSetting.setupTempFileOnly())) {
+            PDFTextStripper stripper = new PDFTextStripper();
+            stripper.setEndPage(maxPages);
+            String text = stripper.getText(document);
+            return text.length() > maxChars ? text.substring(0, maxChars) : text;
+        } catch (IOException e) {
+            log.warn("提取PDF文本失败: note={}, {}", note.getId(), e.getMessage());
+            return "";
+        }
+    }
+
+    private InputStream open(Note note) throws IOException {
+        if (note.getStorageKey() == null) {
+            return Files.newInputStream(Paths.get(note.getFilePath()));
+        }
+        return storageBackend.open(note.getStorageKey());
+    }
+}
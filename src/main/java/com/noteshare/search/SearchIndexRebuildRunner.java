@@ -0,0 +1,66 @@
+package com.noteshare.search;
+
+import com.noteshare.entity.Note;
+import com.noteshare.repository.NoteRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+// 启动参数带 --rebuild-search-index 时重建检索索引；索引为空而库里有笔记时也会自动重建
+@Component
+public class SearchIndexRebuildRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchIndexRebuildRunner.class);
+
+    private static final String REBUILD_OPTION = "rebuild-search-index";
+    private static final int BATCH_SIZE = 500;
+
+    @Autowired
+    private NoteSearchService noteSearchService;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        boolean requested = args.containsOption(REBUILD_OPTION);
+        if (!requested && (noteSearchService.numDocs() > 0 || noteRepository.count() == 0)) {
+            return;
+        }
+        log.info("开始重建检索索引");
+        noteSearchService.rebuild(this::batches);
+    }
+
+    // 按id顺序分批加载，每批一条查询带出课程和上传者
+    private Iterator<List<Note>> batches() {
+        return new Iterator<List<Note>>() {
+            private List<Note> next = noteRepository.findBatchForIndexing(0L, PageRequest.of(0, BATCH_SIZE));
+
+            @Override
+            public boolean hasNext() {
+                return !next.isEmpty();
+            }
+
+            @Override
+            public List<Note> next() {
+                if (next.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                List<Note> current = next;
+                Long lastId = current.get(current.size() - 1).getId();
+                next = current.size() < BATCH_SIZE
+                        ? List.of()
+                        : noteRepository.findBatchForIndexing(lastId, PageRequest.of(0, BATCH_SIZE));
+                return current;
+            }
+        };
+    }
+}
@@ -0,0 +1,101 @@
+package com.noteshare.search;
+
+import com.noteshare.entity.Note;
+import com.noteshare.entity.NoteChange;
+import com.noteshare.entity.NoteStatus;
+import com.noteshare.repository.NoteChangeRepository;
+import com.noteshare.repository.NoteRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+// 按note_change变更日志把其他节点的上传和删除补进本节点的检索索引。
+// 与增量同步接口一样按笔记当前状态处理：READY且索引里没有的建索引（下载次数变化不重建），已不存在的删掉。
+// 启动（索引重建之后）时从头扫一遍日志，补上停机期间的变化；日志按笔记压缩过，条数与笔记数相当
+@Component
+public class SearchIndexSync {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchIndexSync.class);
+
+    private static final int BATCH_SIZE = 500;
+
+    // 与增量同步相同：写入不到该时长的变更暂不读取，并发写入时较小的序号可能较晚提交
+    @Value("${sync.visibility-lag-ms:2000}")
+    private long visibilityLagMillis;
+
+    @Autowired
+    private NoteChangeRepository noteChangeRepository;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private NoteSearchService noteSearchService;
+
+    // 已处理到的变更序号，null表示还没到可以同步的时候（索引可能正在重建）
+    private volatile Long syncedId;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        syncedId = 0L;
+        sync();
+    }
+
+    @Scheduled(fixedDelayString = "${search.sync-ms:5000}")
+    public synchronized void sync() {
+        Long afterId = syncedId;
+        if (afterId == null) {
+            return;
+        }
+        LocalDateTime visibleBefore = LocalDateTime.now().minus(Duration.ofMillis(visibilityLagMillis));
+        PageRequest limit = PageRequest.of(0, BATCH_SIZE);
+        List<NoteChange> changes;
+        do {
+            changes = noteChangeRepository.findAfter(afterId, visibleBefore, limit);
+            if (changes.isEmpty()) {
+                break;
+            }
+            Set<Long> noteIds = new LinkedHashSet<>();
+            changes.forEach(change -> noteIds.add(change.getNoteId()));
+            apply(noteIds);
+            afterId = changes.get(changes.size() - 1).getId();
+            syncedId = afterId;
+        } while (changes.size() == BATCH_SIZE);
+    }
+
+    private void apply(Set<Long> noteIds) {
+        Set<Long> indexed = noteSearchService.indexedIds(noteIds);
+        List<Long> removed = new ArrayList<>(noteIds);
+        int added = 0;
+        for (Note note : noteRepository.findAllWithOwnerByIdIn(noteIds)) {
+            if (note.getStatus() != NoteStatus.READY) {
+                continue;
+            }
+            removed.remove(note.getId());
+            if (!indexed.contains(note.getId())) {
+                noteSearchService.index(note);
+                added++;
+            }
+        }
+        removed.retainAll(indexed);
+        if (!removed.isEmpty()) {
+            noteSearchService.delete(removed);
+        }
+        if (added > 0 || !removed.isEmpty()) {
+            log.debug("按变更日志同步检索索引: 新增{}条, 删除{}条", added, removed.size());
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package com.noteshare.service;
 
+import com.noteshare.config.CacheConfig;
+import com.noteshare.datasource.ReplicaRouting;
 import com.noteshare.entity.Course;
 import com.noteshare.repository.CourseRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -13,7 +16,11 @@ public class CourseService {
     @Autowired
     private CourseRepository courseRepository;
 
+    @Autowired
+    private ReplicaRouting replicaRouting;
+
+    @Cacheable(CacheConfig.COURSES_CACHE)
     public List<Course> getAllCourses() {
-        return courseRepository.findAllByOrderByName();
+        return replicaRouting.read(courseRepository::findAllByOrderByName);
     }
 }
\ No newline at end of file
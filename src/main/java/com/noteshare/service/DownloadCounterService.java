@@ -0,0 +1,269 @@
+package com.noteshare.service;
+
+import com.noteshare.event.DownloadCountsFlushedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// 下载计数写回缓冲：下载时只在内存里累加，定时或积累到阈值后批量
+// UPDATE note SET download_count = download_count + ? 写回数据库。
+// 一批UPDATE在同一个事务里执行，要么全部写入要么全部放回重试；上一次写回之后再没有下载的笔记，其计数器随写回移除。
+// 停机时在Web服务器停止之后、单例销毁之前最后写回一次，写回事件的监听者此时都还在
+@Service
+public class DownloadCounterService implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(DownloadCounterService.class);
+
+    private static final String INCREMENT_SQL =
+            "UPDATE note SET download_count = COALESCE(download_count, 0) + ? WHERE id = ?";
+
+    // false时每次下载直接执行原子UPDATE，宕机不丢计数
+    @Value("${note.download-counter.write-behind:true}")
+    private boolean writeBehind;
+
+    // 未写回的下载次数达到该值时提前触发一次写回，也是宕机时最多丢失的次数
+    @Value("${note.download-counter.flush-threshold:1000}")
+    private long flushThreshold;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private TaskScheduler taskScheduler;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private final Map<Long, Counter> counters = new ConcurrentHashMap<>();
+
+    // 直写模式下已写入数据库的增量，由定时任务统一发布写回事件，监听方不在下载请求线程里执行
+    private final Map<Long, LongAdder> directDeltas = new ConcurrentHashMap<>();
+    private final LongAdder unflushed = new LongAdder();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    // 写回序号：写回进行中为奇数，读取方据此判断数据库值与内存值是否可能重复计算
+    private final AtomicLong flushSeq = new AtomicLong();
+
+    public void increment(Long noteId) {
+        if (!writeBehind) {
+            jdbcTemplate.update(INCREMENT_SQL, 1, noteId);
+            directDeltas.computeIfAbsent(noteId, id -> new LongAdder()).increment();
+            return;
+        }
+        add(noteId);
+        unflushed.increment();
+        if (unflushed.sum() >= flushThreshold && flushRequested.compareAndSet(false, true)) {
+            taskScheduler.schedule(this::flush, Instant.now());
+        }
+    }
+
+    // 打包下载等一次计多条笔记的场景：直写模式下也只执行一次批量UPDATE
+    public void incrementAll(Collection<Long> noteIds) {
+        if (noteIds.isEmpty()) {
+            return;
+        }
+        if (!writeBehind) {
+            List<Object[]> batch = new ArrayList<>(noteIds.size());
+            for (Long noteId : noteIds) {
+                batch.add(new Object[]{1, noteId});
+            }
+            jdbcTemplate.batchUpdate(INCREMENT_SQL, batch);
+            for (Long noteId : noteIds) {
+                directDeltas.computeIfAbsent(noteId, id -> new LongAdder()).increment();
+            }
+            return;
+        }
+        for (Long noteId : noteIds) {
+            add(noteId);
+        }
+        unflushed.add(noteIds.size());
+        if (unflushed.sum() >= flushThreshold && flushRequested.compareAndSet(false, true)) {
+            taskScheduler.schedule(this::flush, Instant.now());
+        }
+    }
+
+    // 计数器可能恰好被写回移除：加上之后发现已移除就撤回，换新的计数器重加
+    private void add(Long noteId) {
+        while (true) {
+            Counter counter = counters.computeIfAbsent(noteId, id -> new Counter());
+            counter.pending.increment();
+            if (!counter.retired) {
+                return;
+            }
+            counter.pending.decrement();
+        }
+    }
+
+    // 查询数据库之前调用，把返回值传给mergePending
+    public long readStamp() {
+        return flushSeq.get();
+    }
+
+    // 数据库中的计数加上尚未写回的增量；结果不会小于之前返回过的值
+    public int mergePending(Long noteId, Integer dbCount, long stamp) {
+        int base = dbCount == null ? 0 : dbCount;
+        Counter counter = counters.get(noteId);
+        if (counter == null) {
+            return base;
+        }
+        long merged = base + counter.pending.sum();
+        long inFlight = counter.inFlight.get();
+        // 读取期间没有发生写回，in-flight部分一定还没进入数据库值
+        if ((stamp & 1) == 0 && flushSeq.get() == stamp) {
+            merged += inFlight;
+        }
+        return (int) counter.highWater.accumulateAndGet(merged, Math::max);
+    }
+
+    // 笔记删除后丢弃其缓冲计数
+    public void discard(Long noteId) {
+        Counter counter = counters.remove(noteId);
+        if (counter != null) {
+            unflushed.add(-counter.pending.sum());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${note.download-counter.flush-interval-ms:5000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            if (!writeBehind) {
+                publishDirectDeltas();
+                return;
+            }
+            flushRequested.set(false);
+            flushSeq.incrementAndGet();
+            try {
+                List<Object[]> batch = new ArrayList<>();
+                List<Counter> flushing = new ArrayList<>();
+                for (Map.Entry<Long, Counter> entry : counters.entrySet()) {
+                    Counter counter = entry.getValue();
+                    long delta = counter.pending.sum();
+                    if (delta == 0) {
+                        // 上次写回之后没有新的下载，数据库值已包含全部计数
+                        if (counter.inFlight.get() == 0) {
+                            counters.computeIfPresent(entry.getKey(), (id, c) -> c.retire() ? null : c);
+                        }
+                        continue;
+                    }
+                    // 先从pending扣除再记入inFlight，并发的increment不会丢
+                    counter.pending.add(-delta);
+                    counter.inFlight.addAndGet(delta);
+                    unflushed.add(-delta);
+                    batch.add(new Object[]{delta, entry.getKey()});
+                    flushing.add(counter);
+                }
+                if (batch.isEmpty()) {
+                    return;
+                }
+
+                try {
+                    transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INCREMENT_SQL, batch));
+                    Map<Long, Long> deltas = new HashMap<>();
+                    for (int i = 0; i < batch.size(); i++) {
+                        flushing.get(i).inFlight.addAndGet(-(long) batch.get(i)[0]);
+                        deltas.put((Long) batch.get(i)[1], (Long) batch.get(i)[0]);
+                    }
+                    log.debug("写回下载计数: {}条笔记", batch.size());
+                    eventPublisher.publishEvent(new DownloadCountsFlushedEvent(deltas));
+                } catch (DataAccessException e) {
+                    // 写回失败，增量放回pending等待下次重试
+                    for (int i = 0; i < batch.size(); i++) {
+                        long delta = (long) batch.get(i)[0];
+                        flushing.get(i).inFlight.addAndGet(-delta);
+                        flushing.get(i).pending.add(delta);
+                        unflushed.add(delta);
+                    }
+                    log.warn("写回下载计数失败，将在下次重试: {}", e.getMessage());
+                }
+            } finally {
+                flushSeq.incrementAndGet();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void publishDirectDeltas() {
+        Map<Long, Long> deltas = new HashMap<>();
+        for (Long noteId : directDeltas.keySet()) {
+            LongAdder adder = directDeltas.remove(noteId);
+            if (adder != null) {
+                deltas.put(noteId, adder.sum());
+            }
+        }
+        if (!deltas.isEmpty()) {
+            eventPublisher.publishEvent(new DownloadCountsFlushedEvent(deltas));
+        }
+    }
+
+    private volatile boolean running;
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        flush();
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Web服务器（优雅停机和停止分别在MAX_VALUE和MAX_VALUE - 1阶段）停下、不再有新的下载之后才停
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE - 2;
+    }
+
+    private static class Counter {
+        // 尚未写回的增量，按CPU分段累加避免热门笔记上的CAS竞争
+        private final LongAdder pending = new LongAdder();
+        // 正在写回数据库的增量
+        private final AtomicLong inFlight = new AtomicLong();
+        // 已返回给客户端的最大值，保证展示的计数单调不减
+        private final AtomicLong highWater = new AtomicLong();
+        // 已从counters移除，之后加到这里的计数由add()撤回重加
+        private volatile boolean retired;
+
+        // 先标记再复查：复查时还是0，之后的add()一定能看到标记；复查不为0说明有并发的add()，保留计数器
+        private boolean retire() {
+            retired = true;
+            if (pending.sum() == 0) {
+                return true;
+            }
+            retired = false;
+            return false;
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package com.noteshare.service;
+
+import com.noteshare.cache.HotFileCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.LongTaskTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.StreamUtils;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// 笔记文件下载：支持Range断点续传(206)、ETag/Last-Modified条件请求(304)，
+// 大文件优先交给Tomcat sendfile零拷贝发送，否则用FileChannel.transferTo写出
+@Service
+public class FileDownloadService {
+
+    // Tomcat sendfile相关的request属性（见org.apache.tomcat.util.net.Constants）
+    private static final String SENDFILE_SUPPORTED_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    // 小于该大小的文件直接写出，sendfile的开销不划算
+    @Value("${file.download.sendfile-threshold:49152}")
+    private long sendfileThreshold;
+
+    @Autowired
+    private HotFileCache hotFileCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // 下载字节数（Prometheus中用rate()得到每秒字节数）和正在写出的下载
+    private Counter downloadBytes;
+    private LongTaskTimer activeDownloads;
+
+    @PostConstruct
+    public void init() {
+        downloadBytes = Counter.builder("note.download.bytes").baseUnit("bytes").register(meterRegistry);
+        activeDownloads = LongTaskTimer.builder("note.download.active").register(meterRegistry);
+    }
+
+    // 发送文件。返回true表示本次响应从第0字节开始发送了文件内容（计为一次下载），
+    // 304、HEAD和续传请求返回false
+    // contentKey为内容哈希时直接用作ETag，为空时根据大小和修改时间生成
+    public boolean send(Path file, String contentKey, String fileName, String fileType,
+                        HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!Files.isReadable(file)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return false;
+        }
+
+        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        long length = attrs.size();
+        long lastModified = attrs.lastModifiedTime().toMillis() / 1000 * 1000;
+        String etag = contentKey != null
+                ? "\"" + contentKey + "\""
+                : "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (notModified(request, etag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return false;
+        }
+
+        MediaType contentType = getContentType(fileType);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(fileName, StandardCharsets.UTF_8).build().toString());
+
+        List<HttpRange> ranges;
+        try {
+            ranges = rangeApplies(request, etag, lastModified)
+                    ? coalesce(HttpRange.parseRanges(request.getHeader(HttpHeaders.RANGE)), length)
+                    : List.of();
+        } catch (IllegalArgumentException e) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return false;
+        }
+
+        boolean head = "HEAD".equalsIgnoreCase(request.getMethod());
+
+        if (ranges.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(contentType.toString());
+            response.setContentLengthLong(length);
+            if (!head) {
+                writeRegion(file, contentKey, length, 0, length, request, response);
+            }
+            return !head;
+        }
+
+        if (ranges.size() == 1) {
+            long start = ranges.get(0).getRangeStart(length);
+            long end = ranges.get(0).getRangeEnd(length);
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setContentType(contentType.toString());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            response.setContentLengthLong(end - start + 1);
+            if (!head) {
+                writeRegion(file, contentKey, length, start, end - start + 1, request, response);
+            }
+            return !head && start == 0;
+        }
+
+        // 多区间：multipart/byteranges
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        if (head) {
+            return false;
+        }
+        OutputStream out = response.getOutputStream();
+        ByteBuffer cached = hotFileCache.get(contentKey, length, () -> FileChannel.open(file, StandardOpenOption.READ));
+        LongTaskTimer.Sample active = activeDownloads.start();
+        try (FileChannel channel = cached == null ? FileChannel.open(file, StandardOpenOption.READ) : null) {
+            WritableByteChannel target = Channels.newChannel(out);
+            for (HttpRange range : ranges) {
+                long start = range.getRangeStart(length);
+                long end = range.getRangeEnd(length);
+                String partHeader = "\r\n--" + boundary + "\r\n" +
+                        HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n" +
+                        HttpHeaders.CONTENT_RANGE + ": bytes " + start + "-" + end + "/" + length + "\r\n\r\n";
+                out.write(partHeader.getBytes(StandardCharsets.US_ASCII));
+                if (cached != null) {
+                    hotFileCache.write(slice(cached, start, end - start + 1), out);
+                } else {
+                    transfer(channel, start, end - start + 1, target);
+                }
+                downloadBytes.increment(end - start + 1);
+            }
+            out.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        } finally {
+            active.stop();
+        }
+        return ranges.get(0).getRangeStart(length) == 0;
+    }
+
+    // 校验每个区间都落在文件范围内；多个区间按起点排序，重叠或相邻的合并为一个。
+    // 区间总长度超过文件长度时视为无法满足（同HttpRange.toResourceRegions），防止用重复区间把文件发送多遍
+    private List<HttpRange> coalesce(List<HttpRange> ranges, long length) {
+        List<long[]> bounds = new ArrayList<>(ranges.size());
+        long total = 0;
+        for (HttpRange range : ranges) {
+            long start = range.getRangeStart(length);
+            long end = range.getRangeEnd(length);
+            total += end - start + 1;
+            bounds.add(new long[]{start, end});
+        }
+        if (ranges.size() < 2) {
+            return ranges;
+        }
+        if (total > length) {
+            throw new IllegalArgumentException("区间总长度超过文件长度");
+        }
+        bounds.sort(Comparator.comparingLong(b -> b[0]));
+        List<HttpRange> merged = new ArrayList<>(bounds.size());
+        long start = bounds.get(0)[0];
+        long end = bounds.get(0)[1];
+        for (long[] b : bounds.subList(1, bounds.size())) {
+            if (b[0] <= end + 1) {
+                end = Math.max(end, b[1]);
+            } else {
+                merged.add(HttpRange.createByteRange(start, end));
+                start = b[0];
+                end = b[1];
+            }
+        }
+        merged.add(HttpRange.createByteRange(start, end));
+        return merged;
+    }
+
+    // 对象不在本地磁盘上时的退化路径：不支持Range，只按内容哈希做条件请求
+    public boolean send(InputStream in, long length, String contentKey, String fileName, String fileType,
+                        HttpServletRequest request, HttpServletResponse response) throws IOException {
+        try (InputStream content = in) {
+            String etag = "\"" + contentKey + "\"";
+            response.setHeader(HttpHeaders.ETAG, etag);
+            String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+            if (ifNoneMatch != null && etagMatches(ifNoneMatch, etag)) {
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return false;
+            }
+
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(getContentType(fileType).toString());
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                    .filename(fileName, StandardCharsets.UTF_8).build().toString());
+            response.setContentLengthLong(length);
+            if ("HEAD".equalsIgnoreCase(request.getMethod())) {
+                return false;
+            }
+            LongTaskTimer.Sample active = activeDownloads.start();
+            try {
+                ByteBuffer cached = hotFileCache.get(contentKey, length, () -> Channels.newChannel(content));
+                if (cached != null) {
+                    hotFileCache.write(cached, response.getOutputStream());
+                } else {
+                    StreamUtils.copy(content, response.getOutputStream());
+                }
+            } finally {
+                active.stop();
+            }
+            downloadBytes.increment(length);
+            return true;
+        }
+    }
+
+    public MediaType getContentType(String fileType) {
+        if (fileType == null || fileType.isEmpty()) {
+            return MediaType.APPLICATION_OCTET_STREAM;
+        }
+        return MediaTypeFactory.getMediaType("file." + fileType)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM);
+    }
+
+    // 热门文件直接从堆外缓存写出，其余的走sendfile或FileChannel
+    private void writeRegion(Path file, String contentKey, long length, long position, long count,
+                             HttpServletRequest request, HttpServletResponse response) throws IOException {
+        downloadBytes.increment(count);
+        ByteBuffer cached = hotFileCache.get(contentKey, length, () -> FileChannel.open(file, StandardOpenOption.READ));
+        if (cached == null && count >= sendfileThreshold
+                && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED_ATTR))) {
+            // 交给Tomcat在servlet返回后用sendfile发送，end为开区间；这部分不计入进行中的下载
+            request.setAttribute(SENDFILE_FILENAME_ATTR, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START_ATTR, position);
+            request.setAttribute(SENDFILE_END_ATTR, position + count);
+            return;
+        }
+        LongTaskTimer.Sample active = activeDownloads.start();
+        try {
+            if (cached != null) {
+                hotFileCache.write(slice(cached, position, count), response.getOutputStream());
+                return;
+            }
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                transfer(channel, position, count, Channels.newChannel(response.getOutputStream()));
+            }
+        } finally {
+            active.stop();
+        }
+    }
+
+    private ByteBuffer slice(ByteBuffer content, long position, long count) {
+        content.limit((int) (position + count));
+        content.position((int) position);
+        return content;
+    }
+
+    private void transfer(FileChannel channel, long position, long count, WritableByteChannel target) throws IOException {
+        long end = position + count;
+        while (position < end) {
+            long sent = channel.transferTo(position, end - position, target);
+            if (sent <= 0) {
+                break;
+            }
+            position += sent;
+        }
+    }
+
+    private boolean notModified(HttpServletRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            return etagMatches(ifNoneMatch, etag);
+        }
+        long ifModifiedSince = getDateHeader(request, HttpHeaders.IF_MODIFIED_SINCE);
+        return ifModifiedSince != -1 && lastModified <= ifModifiedSince;
+    }
+
+    // If-Range不匹配时忽略Range，返回完整文件
+    private boolean rangeApplies(HttpServletRequest request, String etag, long lastModified) {
+        if (request.getHeader(HttpHeaders.RANGE) == null) {
+            return false;
+        }
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        long ifRangeDate = getDateHeader(request, HttpHeaders.IF_RANGE);
+        return ifRangeDate != -1 && lastModified <= ifRangeDate;
+    }
+
+    private boolean etagMatches(String header, String etag) {
+        for (String candidate : header.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long getDateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+}
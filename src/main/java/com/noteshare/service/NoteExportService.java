@@ -0,0 +1,209 @@
+package com.noteshare.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.noteshare.dto.NoteFileRow;
+import com.noteshare.entity.Course;
+import com.noteshare.repository.NoteRepository;
+import com.noteshare.storage.StorageBackend;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+// 笔记打包下载：边查边写，把文件逐个流式写入响应里的ZIP，不落临时文件；
+// 按id分批查询、按批计数，内存占用与课程大小无关
+@Service
+public class NoteExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(NoteExportService.class);
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    // 每批查询的笔记数
+    @Value("${note.export.batch-size:200}")
+    private int batchSize;
+
+    // 本身已压缩的格式用STORED直接存入，不再浪费CPU做deflate
+    @Value("${note.export.stored-types:pdf,jpg,jpeg,png,gif}")
+    private List<String> storedTypes;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private NoteService noteService;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Autowired
+    private DownloadCounterService downloadCounterService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // STORED条目需要预先知道CRC；对象按内容寻址不会变化，CRC算一次即可复用
+    private Cache<String, Checksum> checksums;
+
+    @PostConstruct
+    public void init() {
+        checksums = Caffeine.newBuilder().maximumSize(100_000).build();
+    }
+
+    // 课程不存在时在写出任何内容之前抛出RuntimeException
+    public void exportCourse(Long courseId, HttpServletResponse response) throws IOException {
+        Course course = noteService.getCourse(courseId);
+        PageRequest batch = PageRequest.of(0, batchSize);
+        write(course.getName() + ".zip",
+                afterId -> noteRepository.findFilesByCourseAfter(courseId, afterId, batch), response);
+    }
+
+    public void exportNotes(List<Long> ids, HttpServletResponse response) throws IOException {
+        Set<Long> idSet = new TreeSet<>(ids);
+        PageRequest batch = PageRequest.of(0, batchSize);
+        write("notes.zip", afterId -> noteRepository.findFilesByIdInAfter(idSet, afterId, batch), response);
+    }
+
+    private void write(String archiveName, Function<Long, List<NoteFileRow>> loader,
+                       HttpServletResponse response) throws IOException {
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType("application/zip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(archiveName, StandardCharsets.UTF_8).build().toString());
+
+        // 不关闭ZipOutputStream，响应流由容器负责关闭
+        ZipOutputStream zip = new ZipOutputStream(
+                new BufferedOutputStream(response.getOutputStream(), COPY_BUFFER_SIZE), StandardCharsets.UTF_8);
+        zip.setLevel(Deflater.BEST_SPEED);
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+
+        long afterId = 0;
+        List<NoteFileRow> rows;
+        do {
+            rows = loader.apply(afterId);
+            List<Long> exported = new ArrayList<>(rows.size());
+            for (NoteFileRow row : rows) {
+                if (writeEntry(zip, row, buffer)) {
+                    exported.add(row.getId());
+                }
+            }
+            // 一批写进响应后记一次批量更新；客户端中途断开时写出失败抛异常，后面的批次不再计数
+            zip.flush();
+            downloadCounterService.incrementAll(exported);
+            if (!rows.isEmpty()) {
+                afterId = rows.get(rows.size() - 1).getId();
+            }
+        } while (rows.size() == batchSize);
+        zip.finish();
+        zip.flush();
+    }
+
+    // 文件已丢失的笔记跳过，不影响其余条目
+    private boolean writeEntry(ZipOutputStream zip, NoteFileRow row, byte[] buffer) throws IOException {
+        ZipEntry entry = new ZipEntry(entryName(row));
+        boolean stored = storedTypes.contains(row.getFileType());
+        try {
+            if (stored) {
+                Checksum checksum = checksum(row, buffer);
+                entry.setMethod(ZipEntry.STORED);
+                entry.setSize(checksum.size);
+                entry.setCompressedSize(checksum.size);
+                entry.setCrc(checksum.crc);
+            }
+            try (InputStream in = open(row)) {
+                zip.putNextEntry(entry);
+                copy(in, zip, buffer);
+            }
+            zip.closeEntry();
+        } catch (FileNotFoundException | NoSuchFileException e) {
+            log.warn("打包时文件不存在，已跳过: note={}", row.getId());
+            return false;
+        }
+        meterRegistry.counter("note.export.entries", "method", stored ? "stored" : "deflated").increment();
+        return true;
+    }
+
+    private Checksum checksum(NoteFileRow row, byte[] buffer) throws IOException {
+        if (row.getStorageKey() != null) {
+            Checksum cached = checksums.getIfPresent(row.getStorageKey());
+            if (cached != null) {
+                return cached;
+            }
+        }
+        CRC32 crc = new CRC32();
+        long size = 0;
+        try (InputStream in = open(row)) {
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                crc.update(buffer, 0, n);
+                size += n;
+            }
+        }
+        Checksum checksum = new Checksum(crc.getValue(), size);
+        if (row.getStorageKey() != null) {
+            checksums.put(row.getStorageKey(), checksum);
+        }
+        return checksum;
+    }
+
+    private InputStream open(NoteFileRow row) throws IOException {
+        if (row.getStorageKey() == null) {
+            return Files.newInputStream(Paths.get(row.getFilePath()));
+        }
+        return storageBackend.open(row.getStorageKey());
+    }
+
+    private void copy(InputStream in, OutputStream out, byte[] buffer) throws IOException {
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+    }
+
+    // 去掉路径部分，加上笔记id前缀：同名文件不会冲突，也不用记住已写出的文件名
+    private String entryName(NoteFileRow row) {
+        String name = row.getFileName() == null ? "" : row.getFileName();
+        name = name.substring(Math.max(name.lastIndexOf('/'), name.lastIndexOf('\\')) + 1);
+        if (name.isEmpty()) {
+            name = "note" + (row.getFileType() == null ? "" : "." + row.getFileType());
+        }
+        return row.getId() + "-" + name;
+    }
+
+    private static class Checksum {
+        private final long crc;
+        private final long size;
+
+        private Checksum(long crc, long size) {
+            this.crc = crc;
+            this.size = size;
+        }
+    }
+}
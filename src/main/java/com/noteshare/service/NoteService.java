@@ -1,48 +1,148 @@
 package com.noteshare.service;
 
+import com.noteshare.cache.HotFileCache;
+import com.noteshare.cache.NoteListCache;
+import com.noteshare.cache.NoteListKey;
+import com.noteshare.datasource.ReplicaRouting;
+import com.noteshare.dto.BatchItemResult;
+import com.noteshare.dto.NotePageResponse;
 import com.noteshare.dto.NoteResponse;
+import com.noteshare.dto.NoteSearchResponse;
 import com.noteshare.entity.Course;
 import com.noteshare.entity.Note;
-import com.noteshare.entity.User;
+import com.noteshare.entity.NoteStatus;
+import com.noteshare.event.NoteCreatedEvent;
+import com.noteshare.event.NoteDeletedEvent;
 import com.noteshare.repository.CourseRepository;
+import com.noteshare.repository.NoteChangeRepository;
 import com.noteshare.repository.NoteRepository;
+import com.noteshare.repository.UserRepository;
+import com.noteshare.search.NoteSearchService;
+import com.noteshare.storage.StorageBackend;
+import com.noteshare.storage.StoredBlob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 @Service
 public class NoteService {
 
+    private static final Logger log = LoggerFactory.getLogger(NoteService.class);
+
     @Value("${file.upload-dir:uploads}")
     private String uploadDir;
 
+    // 临时文件名带上节点名，重启时据此只处理本节点中断的上传；未配置时取主机名
+    @Value("${upload.node-id:}")
+    private String nodeId;
+
+    @Value("${note.page.default-size:20}")
+    private int defaultPageSize;
+
+    @Value("${note.page.max-size:100}")
+    private int maxPageSize;
+
     @Autowired
     private NoteRepository noteRepository;
 
     @Autowired
     private CourseRepository courseRepository;
 
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DownloadCounterService downloadCounterService;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Autowired
+    private NoteSearchService noteSearchService;
+
+    @Autowired
+    private NoteListCache noteListCache;
+
+    @Autowired
+    private NoteChangeRepository noteChangeRepository;
+
+    @Autowired
+    private ReplicaRouting replicaRouting;
+
+    @Autowired
+    private HotFileCache hotFileCache;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // 按存储键分段加锁，保证同一内容的上传和删除不会交错；
+    // 锁内有数据库IO，用ReentrantLock而不是synchronized，虚拟线程下不会钉住载体线程
+    private final ReentrantLock[] blobLocks = new ReentrantLock[64];
+
+    public NoteService() {
+        for (int i = 0; i < blobLocks.length; i++) {
+            blobLocks[i] = new ReentrantLock();
+        }
+    }
+
     // 允许的文件类型
     private static final String[] ALLOWED_FILE_TYPES = {"pdf", "jpg", "jpeg", "png", "gif"};
     // 最大文件大小 10MB
     private static final long MAX_FILE_SIZE = 10 * 1024 * 1024;
+    // 检索最多翻到的命中数
+    private static final int MAX_SEARCH_HITS = 10000;
 
-    public Note uploadNote(String title, String description, Long courseId,
-                           MultipartFile file, User user) throws IOException {
+    // 上传第一步（请求线程）：校验参数，文件落到临时目录，创建PENDING状态的笔记
+    public Note receiveUpload(String title, String description, Long courseId,
+                              MultipartFile file, Long userId) throws IOException {
+        Note note = prepareUpload(title, description, getCourse(courseId), file, userId);
+        return noteRepository.save(note);
+    }
 
-        // 验证课程是否存在
-        Course course = courseRepository.findById(courseId)
+    // 批量上传时课程只查一次
+    public Course getCourse(Long courseId) {
+        return courseRepository.findById(courseId)
                 .orElseThrow(() -> new RuntimeException("课程不存在"));
+    }
+
+    // 校验单个文件并落到临时目录，返回尚未保存的PENDING笔记
+    public Note prepareUpload(String title, String description, Course course,
+                              MultipartFile file, Long userId) throws IOException {
 
         // 验证文件类型
         String fileType = getFileExtension(file.getOriginalFilename());
@@ -56,53 +156,351 @@ public class NoteService {
             throw new RuntimeException("文件大小不能超过10MB");
         }
 
-        // 创建上传目录
-        Path uploadPath = Paths.get(uploadDir);
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
-        }
-
-        // 生成文件名（防止重名）
-        String originalFileName = file.getOriginalFilename();
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-        String safeFileName = timestamp + "_" + originalFileName.replaceAll("[^a-zA-Z0-9.-]", "_");
-
-        // 保存文件
-        Path filePath = uploadPath.resolve(safeFileName);
-        Files.copy(file.getInputStream(), filePath);
+        // multipart已经缓冲在容器的临时文件里，transferTo通常只是一次rename
+        Path incomingDir = Paths.get(uploadDir, "incoming");
+        Files.createDirectories(incomingDir);
+        Path tempFile = incomingDir.resolve(nodeId() + "-" + UUID.randomUUID() + ".part");
+        file.transferTo(tempFile);
 
         // 创建笔记记录
         Note note = new Note();
         note.setTitle(title);
         note.setDescription(description);
-        note.setFileName(originalFileName);
-        note.setFilePath(filePath.toString());
+        note.setFileName(file.getOriginalFilename());
+        note.setFilePath(tempFile.toString());
         note.setFileSize(file.getSize());
         note.setFileType(fileType.toLowerCase());
         note.setCourse(course);
-        note.setUser(user);
+        // 只需要外键，不查询用户
+        note.setUser(userRepository.getReferenceById(userId));
+        note.setStatus(NoteStatus.PENDING);
+        return note;
+    }
 
-        return noteRepository.save(note);
+    // 批量上传的PENDING笔记在一个事务里一次批量插入
+    public void savePending(List<Note> notes) {
+        noteRepository.insertAll(notes);
+    }
+
+    // 上传最后一步（后台线程）：关联已保存的文件和预览图，笔记变为READY。
+    // 只有仍为PENDING的笔记才会更新（条件UPDATE），处理期间被删除或判定失败的笔记不会被重新写入，已存的对象随即回收
+    public void completeUpload(Long noteId, StoredBlob blob, StoredBlob preview, Path tempFile) throws IOException {
+        List<ReentrantLock> locks = lockBlobs(keysOf(blob, preview));
+        try {
+            Note note = noteRepository.findById(noteId).orElse(null);
+            if (note == null || note.getStatus() != NoteStatus.PENDING) {
+                releaseBlobs(blob, preview);
+                return;
+            }
+
+            // 与deleteNote串行：相同内容的旧笔记可能刚被删除并回收了对象，需要重新写入；预览图没有原始数据可重写，直接不用
+            if (!storageBackend.exists(blob.getKey())) {
+                try (InputStream in = Files.newInputStream(tempFile)) {
+                    blob = storageBackend.store(in);
+                }
+            }
+            if (preview != null && !storageBackend.exists(preview.getKey())) {
+                preview = null;
+            }
+
+            // 状态接口从这里起就能看到READY，不等建完索引后的事件，上传者和列表缓存的读取此时就改走主库
+            replicaRouting.markWritten(note.getUser().getId());
+            String previewKey = preview == null ? null : preview.getKey();
+            if (!noteRepository.markReady(noteId, blob.getLocation(), blob.getKey(), blob.getSize(), previewKey)) {
+                releaseBlobs(blob, preview);
+                return;
+            }
+
+            note.setFilePath(blob.getLocation());
+            note.setStorageKey(blob.getKey());
+            note.setFileSize(blob.getSize());
+            note.setPreviewKey(previewKey);
+            note.setStatus(NoteStatus.READY);
+            noteSearchService.index(note);
+            eventPublisher.publishEvent(new NoteCreatedEvent(note.getId(), note.getCourse().getId(),
+                    note.getUser().getId(), note.getFileSize(), note.getCreatedTime()));
+        } finally {
+            unlockBlobs(locks);
+        }
+    }
+
+    // 只把仍为PENDING的笔记标为失败，已删除的笔记不会被重新写入
+    public void failUpload(Long noteId, String reason) {
+        noteRepository.markFailed(noteId, reason.length() > 200 ? reason.substring(0, 200) : reason);
+    }
+
+    // 处理失败时回收已写入的文件和预览图；仍被其他笔记引用的对象保留
+    public void discardBlobs(StoredBlob blob, StoredBlob preview) {
+        Set<String> keys = keysOf(blob, preview);
+        if (keys.isEmpty()) {
+            return;
+        }
+        List<ReentrantLock> locks = lockBlobs(keys);
+        try {
+            releaseBlobs(blob, preview);
+        } finally {
+            unlockBlobs(locks);
+        }
+    }
+
+    // 临时文件是否由本节点接收：其他节点的上传由其他节点处理，本节点重启时不去动它们
+    public boolean isLocalUpload(Note note) {
+        return Paths.get(note.getFilePath()).getFileName().toString().startsWith(nodeId() + "-");
+    }
+
+    private String nodeId() {
+        String id = nodeId;
+        if (id == null || id.isEmpty()) {
+            try {
+                id = InetAddress.getLocalHost().getHostName();
+            } catch (UnknownHostException e) {
+                id = "local";
+            }
+            id = id.replaceAll("[^A-Za-z0-9.]", "_");
+            nodeId = id;
+        }
+        return id;
+    }
+
+    // 删除笔记；对象只有在最后一条引用它的笔记删除后才回收
+    public void deleteNote(Note note) {
+        deleteAll(List.of(note));
+    }
+
+    // 批量删除：一次查询做权限检查，只删除当前用户自己的笔记，结果按请求顺序逐条返回
+    public List<BatchItemResult> deleteNotes(List<Long> ids, Long userId) {
+        Map<Long, Note> found = new HashMap<>();
+        for (Note note : noteRepository.findAllWithOwnerByIdIn(new LinkedHashSet<>(ids))) {
+            found.put(note.getId(), note);
+        }
+
+        List<BatchItemResult> results = new ArrayList<>(ids.size());
+        Map<Long, Note> deletable = new LinkedHashMap<>();
+        for (Long id : ids) {
+            Note note = found.get(id);
+            if (note == null) {
+                results.add(BatchItemResult.failed(id, null, "笔记不存在"));
+            } else if (!note.getUser().getId().equals(userId)) {
+                results.add(BatchItemResult.failed(id, null, "无权删除此笔记"));
+            } else {
+                deletable.put(id, note);
+                results.add(BatchItemResult.ok(id, null, "删除笔记成功"));
+            }
+        }
+        if (!deletable.isEmpty()) {
+            deleteAll(new ArrayList<>(deletable.values()));
+        }
+        return results;
+    }
+
+    // 一条DELETE删除所有行、一条INSERT记同步用的删除墓碑，两条在同一个事务里，删了行就一定留下墓碑；
+    // 提交之后再一次性查出仍被引用的对象，其余的回收
+    private void deleteAll(List<Note> notes) {
+        List<Long> ids = new ArrayList<>(notes.size());
+        Set<String> keys = new HashSet<>();
+        for (Note note : notes) {
+            ids.add(note.getId());
+            downloadCounterService.discard(note.getId());
+            if (note.getStorageKey() != null) {
+                keys.add(note.getStorageKey());
+            }
+            if (note.getPreviewKey() != null) {
+                keys.add(note.getPreviewKey());
+            }
+        }
+        List<ReentrantLock> locks = lockBlobs(keys);
+        try {
+            Map<Long, Long> noteCourseIds = new LinkedHashMap<>();
+            notes.forEach(note -> noteCourseIds.put(note.getId(), note.getCourse().getId()));
+            transactionTemplate.executeWithoutResult(status -> {
+                noteRepository.deleteAllByIdInBatch(ids);
+                noteChangeRepository.recordDeletes(noteCourseIds, LocalDateTime.now());
+            });
+            noteSearchService.delete(ids);
+            notes.forEach(this::publishDeleted);
+            if (!keys.isEmpty()) {
+                Set<String> referenced = new HashSet<>(noteRepository.findReferencedStorageKeys(keys));
+                referenced.addAll(noteRepository.findReferencedPreviewKeys(keys));
+                for (String key : keys) {
+                    if (!referenced.contains(key)) {
+                        deleteBlob(key);
+                    }
+                }
+            }
+        } finally {
+            unlockBlobs(locks);
+        }
+
+        // 没有存储键的READY笔记是迁移前的旧笔记，文件按路径删除；
+        // PENDING笔记的路径是后台线程正在读的临时文件，由它处理完后删除
+        for (Note note : notes) {
+            if (note.getStorageKey() == null && note.getStatus() == NoteStatus.READY) {
+                deleteLegacyFile(note);
+            }
+        }
     }
 
-    public List<NoteResponse> getAllNotes() {
-        List<Note> notes = noteRepository.findAllByOrderByCreatedTimeDesc();
-        return notes.stream().map(this::convertToResponse).collect(Collectors.toList());
+    // 调用方需持有这些键的锁
+    private void releaseBlobs(StoredBlob blob, StoredBlob preview) {
+        for (String key : keysOf(blob, preview)) {
+            releaseBlob(key);
+        }
     }
 
-    public List<NoteResponse> getNotesByCourse(Long courseId) {
-        List<Note> notes = noteRepository.findByCourseIdOrderByCreatedTimeDesc(courseId);
-        return notes.stream().map(this::convertToResponse).collect(Collectors.toList());
+    private static Set<String> keysOf(StoredBlob blob, StoredBlob preview) {
+        Set<String> keys = new HashSet<>();
+        if (blob != null) {
+            keys.add(blob.getKey());
+        }
+        if (preview != null) {
+            keys.add(preview.getKey());
+        }
+        return keys;
     }
 
-    public List<NoteResponse> getNotesByUser(Long userId) {
-        List<Note> notes = noteRepository.findByUserIdOrderByCreatedTimeDesc(userId);
-        return notes.stream().map(this::convertToResponse).collect(Collectors.toList());
+    // 按下标升序加锁，多个删除、上传并发时不会死锁
+    private List<ReentrantLock> lockBlobs(Collection<String> keys) {
+        List<ReentrantLock> locks = new ArrayList<>();
+        for (int stripe : new TreeSet<>(keys.stream().map(this::blobStripe).collect(Collectors.toList()))) {
+            locks.add(blobLocks[stripe]);
+        }
+        locks.forEach(ReentrantLock::lock);
+        return locks;
     }
 
-    public List<NoteResponse> getNotesByUserWithDeletable(Long userId, Long currentUserId) {
-        List<Note> notes = noteRepository.findByUserIdOrderByCreatedTimeDesc(userId);
-        return notes.stream().map(note -> convertToResponseWithUser(note, currentUserId)).collect(Collectors.toList());
+    private static void unlockBlobs(List<ReentrantLock> locks) {
+        for (int i = locks.size() - 1; i >= 0; i--) {
+            locks.get(i).unlock();
+        }
+    }
+
+    // 调用方需持有该键的锁
+    private void releaseBlob(String key) {
+        if (noteRepository.countByStorageKey(key) > 0 || noteRepository.countByPreviewKey(key) > 0) {
+            return;
+        }
+        deleteBlob(key);
+    }
+
+    private void deleteBlob(String key) {
+        hotFileCache.invalidate(key);
+        try {
+            storageBackend.delete(key);
+        } catch (IOException e) {
+            // 记录日志但不阻止删除数据库记录
+            log.warn("删除文件失败: {}", key, e);
+        }
+    }
+
+    // 本地可直接访问的文件路径，对象不在本地磁盘上时返回null
+    public Path getLocalFile(Note note) {
+        if (note.getStorageKey() == null) {
+            return Paths.get(note.getFilePath());
+        }
+        return storageBackend.localPath(note.getStorageKey()).orElse(null);
+    }
+
+    public InputStream openFile(Note note) throws IOException {
+        if (note.getStorageKey() == null) {
+            return Files.newInputStream(Paths.get(note.getFilePath()));
+        }
+        return storageBackend.open(note.getStorageKey());
+    }
+
+    public Path getLocalPreview(Note note) {
+        return storageBackend.localPath(note.getPreviewKey()).orElse(null);
+    }
+
+    public InputStream openPreview(Note note) throws IOException {
+        return storageBackend.open(note.getPreviewKey());
+    }
+
+    public long getPreviewSize(Note note) throws IOException {
+        return storageBackend.size(note.getPreviewKey());
+    }
+
+    private void publishDeleted(Note note) {
+        eventPublisher.publishEvent(new NoteDeletedEvent(note.getId(), note.getCourse().getId(), note.getUser().getId(),
+                note.getStatus(), note.getFileSize(), note.getDownloadCount() == null ? 0 : note.getDownloadCount()));
+    }
+
+    private void deleteLegacyFile(Note note) {
+        try {
+            Files.deleteIfExists(Paths.get(note.getFilePath()));
+        } catch (IOException e) {
+            log.warn("删除文件失败: {}", note.getFilePath(), e);
+        }
+    }
+
+    private int blobStripe(String key) {
+        return (key.hashCode() & 0x7fffffff) % blobLocks.length;
+    }
+
+    public NotePageResponse getAllNotes(String cursor, Integer size) {
+        long stamp = downloadCounterService.readStamp();
+        Pageable limit = pageLimit(size);
+        String key = emptyToNull(cursor);
+        List<NoteResponse> rows = noteListCache.get(NoteListKey.all(key, limit.getPageSize()), () -> replicaRouting.readShared(() -> {
+            if (key == null) {
+                return noteRepository.findFirstPage(limit);
+            }
+            Cursor c = decodeCursor(key);
+            return noteRepository.findPageBefore(c.createdTime, c.id, limit);
+        }));
+        return toPage(rows, limit.getPageSize() - 1, null, stamp);
+    }
+
+    public NotePageResponse getNotesByCourse(Long courseId, String cursor, Integer size) {
+        long stamp = downloadCounterService.readStamp();
+        Pageable limit = pageLimit(size);
+        String key = emptyToNull(cursor);
+        List<NoteResponse> rows = noteListCache.get(NoteListKey.course(courseId, key, limit.getPageSize()), () -> replicaRouting.readShared(() -> {
+            if (key == null) {
+                return noteRepository.findFirstPageByCourse(courseId, limit);
+            }
+            Cursor c = decodeCursor(key);
+            return noteRepository.findPageByCourseBefore(courseId, c.createdTime, c.id, limit);
+        }));
+        return toPage(rows, limit.getPageSize() - 1, null, stamp);
+    }
+
+    public NotePageResponse getNotesByUser(Long userId, Long currentUserId, String cursor, Integer size) {
+        long stamp = downloadCounterService.readStamp();
+        Pageable limit = pageLimit(size);
+        String key = emptyToNull(cursor);
+        List<NoteResponse> rows = noteListCache.get(NoteListKey.user(userId, key, limit.getPageSize()), () -> {
+            if (key == null) {
+                return noteRepository.findFirstPageByUser(userId, limit);
+            }
+            Cursor c = decodeCursor(key);
+            return noteRepository.findPageByUserBefore(userId, c.createdTime, c.id, limit);
+        });
+        return toPage(rows, limit.getPageSize() - 1, currentUserId, stamp);
+    }
+
+    public NoteSearchResponse searchNotes(String keyword, Long courseId, String fileType, Integer page, Integer size) {
+        long stamp = downloadCounterService.readStamp();
+        int pageSize = (size == null || size <= 0) ? defaultPageSize : Math.min(size, maxPageSize);
+        // 限制翻页深度，(page + 1) * size不会溢出；更深的页返回空列表
+        int pageNo = page == null || page < 0 ? 0 : Math.min(page, MAX_SEARCH_HITS / pageSize);
+        NoteSearchResponse result = noteSearchService.search(keyword, courseId, fileType, pageNo, pageSize);
+
+        // 下载次数变化频繁，不放在索引里，按id批量回表取
+        List<Long> ids = new ArrayList<>();
+        result.getItems().forEach(item -> ids.add(item.getId()));
+        Map<Long, Integer> counts = new HashMap<>();
+        if (!ids.isEmpty()) {
+            for (Object[] row : noteRepository.findDownloadCounts(ids)) {
+                counts.put((Long) row[0], (Integer) row[1]);
+            }
+        }
+        // 其他节点刚删除、本节点索引还没同步到的笔记不返回
+        result.getItems().removeIf(item -> !counts.containsKey(item.getId()));
+        result.getItems().forEach(item -> {
+            item.setDownloadCount(counts.get(item.getId()));
+            convertToResponse(item, null, stamp);
+        });
+        return result;
     }
 
     public Note getNoteById(Long id) {
@@ -111,44 +509,72 @@ public class NoteService {
     }
 
     public void incrementDownloadCount(Long noteId) {
-        Note note = getNoteById(noteId);
-        note.setDownloadCount(note.getDownloadCount() + 1);
-        noteRepository.save(note);
-    }
-
-    private NoteResponse convertToResponse(Note note) {
-        NoteResponse response = new NoteResponse();
-        response.setId(note.getId());
-        response.setTitle(note.getTitle());
-        response.setDescription(note.getDescription());
-        response.setFileName(note.getFileName());
-        response.setFileType(note.getFileType());
-        response.setFileSize(note.getFileSize());
-        response.setDownloadCount(note.getDownloadCount());
-        response.setCreatedTime(note.getCreatedTime());
-        response.setCourseName(note.getCourse().getName());
-        response.setUploaderName(note.getUser().getUsername());
-        response.setUploaderId(note.getUser().getId());
-        response.setDownloadUrl("/api/notes/" + note.getId() + "/download");
-        response.setDeletable(false); // 默认false，前端需要根据当前用户判断
-        return response;
+        downloadCounterService.increment(noteId);
     }
 
-    private NoteResponse convertToResponseWithUser(Note note, Long currentUserId) {
-        NoteResponse response = convertToResponse(note);
-        // 如果可以删除：当前用户是笔记上传者
-        response.setDeletable(note.getUser().getId().equals(currentUserId));
+    // 包级可见供benchmarks模块测量
+    NoteResponse convertToResponse(NoteResponse response, Long currentUserId, long stamp) {
+        // 合并内存中尚未写回的下载次数
+        response.setDownloadCount(downloadCounterService.mergePending(
+                response.getId(), response.getDownloadCount(), stamp));
+        response.setDownloadUrl("/api/notes/" + response.getId() + "/download");
+        // 如果可以删除：当前用户是笔记上传者；未传当前用户时默认false，前端需要根据当前用户判断
+        response.setDeletable(currentUserId != null && currentUserId.equals(response.getUploaderId()));
         return response;
     }
 
-    private String getFileExtension(String filename) {
+    private String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    // 多查一条用来判断是否还有下一页
+    private Pageable pageLimit(Integer size) {
+        int pageSize = (size == null || size <= 0) ? defaultPageSize : Math.min(size, maxPageSize);
+        return PageRequest.of(0, pageSize + 1);
+    }
+
+    NotePageResponse toPage(List<NoteResponse> rows, int pageSize, Long currentUserId, long stamp) {
+        boolean hasMore = rows.size() > pageSize;
+        List<NoteResponse> items = hasMore ? rows.subList(0, pageSize) : rows;
+        items.forEach(response -> convertToResponse(response, currentUserId, stamp));
+        String nextCursor = hasMore ? encodeCursor(items.get(items.size() - 1)) : null;
+        return new NotePageResponse(new ArrayList<>(items), nextCursor, hasMore);
+    }
+
+    // 游标格式：base64url("createdTime|id")，对前端不透明
+    private String encodeCursor(NoteResponse last) {
+        String raw = last.getCreatedTime() + "|" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Cursor decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.lastIndexOf('|');
+            return new Cursor(LocalDateTime.parse(raw.substring(0, sep)), Long.parseLong(raw.substring(sep + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new RuntimeException("无效的分页游标");
+        }
+    }
+
+    private static class Cursor {
+        private final LocalDateTime createdTime;
+        private final Long id;
+
+        private Cursor(LocalDateTime createdTime, Long id) {
+            this.createdTime = createdTime;
+            this.id = id;
+        }
+    }
+
+    String getFileExtension(String filename) {
         if (filename == null || !filename.contains(".")) {
             return "";
         }
         return filename.substring(filename.lastIndexOf(".") + 1).toLowerCase();
     }
 
-    private boolean isAllowedFileType(String fileType) {
+    boolean isAllowedFileType(String fileType) {
         for (String allowedType : ALLOWED_FILE_TYPES) {
             if (allowedType.equalsIgnoreCase(fileType)) {
                 return true;
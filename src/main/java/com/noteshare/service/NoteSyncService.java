@@ -0,0 +1,157 @@
+package com.noteshare.service;
+
+import com.noteshare.dto.NoteResponse;
+import com.noteshare.dto.NoteSyncResponse;
+import com.noteshare.entity.NoteChange;
+import com.noteshare.entity.NoteChangeType;
+import com.noteshare.event.DownloadCountsFlushedEvent;
+import com.noteshare.event.NoteCreatedEvent;
+import com.noteshare.repository.NoteChangeRepository;
+import com.noteshare.repository.NoteRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+// 增量同步：客户端带上次的同步令牌，只取之后新增、变化和删除的笔记，不再每次全量拉取列表。
+// 变更写入note_change（自增id即序号）：上传完成和下载次数写回由事件记UPSERT；
+// 删除由NoteService在同一次删除里批量记DELETE墓碑，批量删除不随条数多出INSERT。
+// 返回时按笔记去重，UPSERT取笔记当前的完整信息，已不存在的笔记放入deleted。
+// 被同一笔记更新记录覆盖的旧记录随时可以压缩；超过保留期的记录直接删除，令牌早于保留期的客户端需要全量重新拉取
+@Service
+public class NoteSyncService {
+
+    private static final Logger log = LoggerFactory.getLogger(NoteSyncService.class);
+
+    private static final int COMPACT_BATCH_SIZE = 1000;
+
+    // 每次最多返回的变更记录数
+    @Value("${sync.page-size:500}")
+    private int pageSize;
+
+    @Value("${sync.retention-days:30}")
+    private int retentionDays;
+
+    // 写入不到该时长的变更暂不返回：并发写入时较小的序号可能较晚提交，避免令牌越过它
+    @Value("${sync.visibility-lag-ms:2000}")
+    private long visibilityLagMillis;
+
+    @Autowired
+    private NoteChangeRepository noteChangeRepository;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private NoteService noteService;
+
+    @Autowired
+    private DownloadCounterService downloadCounterService;
+
+    @EventListener
+    public void onNoteCreated(NoteCreatedEvent event) {
+        noteChangeRepository.record(event.getNoteId(), event.getCourseId(), NoteChangeType.UPSERT, LocalDateTime.now());
+    }
+
+    @EventListener
+    public void onDownloadCountsFlushed(DownloadCountsFlushedEvent event) {
+        if (!event.getDeltas().isEmpty()) {
+            noteChangeRepository.recordUpserts(event.getDeltas().keySet(), LocalDateTime.now());
+        }
+    }
+
+    // courseId为null时同步全站笔记
+    public NoteSyncResponse sync(String token, Long courseId) {
+        long stamp = downloadCounterService.readStamp();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime visibleBefore = now.minus(Duration.ofMillis(visibilityLagMillis));
+        SyncToken previous = token == null || token.isEmpty() ? null : decodeToken(token);
+        if (previous == null || previous.time.isBefore(now.minusDays(retentionDays))) {
+            Long head = noteChangeRepository.findLatestIdBefore(visibleBefore);
+            return new NoteSyncResponse(true, new ArrayList<>(), new ArrayList<>(),
+                    encodeToken(head == null ? 0 : head, visibleBefore), false);
+        }
+
+        PageRequest limit = PageRequest.of(0, pageSize + 1);
+        List<NoteChange> changes = courseId == null
+                ? noteChangeRepository.findAfter(previous.seq, visibleBefore, limit)
+                : noteChangeRepository.findByCourseAfter(courseId, previous.seq, visibleBefore, limit);
+        boolean hasMore = changes.size() > pageSize;
+        if (hasMore) {
+            changes = changes.subList(0, pageSize);
+        }
+
+        Set<Long> noteIds = new LinkedHashSet<>();
+        changes.forEach(change -> noteIds.add(change.getNoteId()));
+        List<NoteResponse> upserted = noteIds.isEmpty()
+                ? new ArrayList<>() : noteRepository.findResponsesByIdIn(noteIds);
+        upserted.forEach(response -> {
+            noteService.convertToResponse(response, null, stamp);
+            noteIds.remove(response.getId());
+        });
+
+        // 还有下一页时沿用上次令牌的时间：未取到的记录可能很旧，不能让令牌因此显得更新而跳过过期检查
+        long seq = changes.isEmpty() ? previous.seq : changes.get(changes.size() - 1).getId();
+        String next = encodeToken(seq, hasMore ? previous.time : visibleBefore);
+        return new NoteSyncResponse(false, upserted, new ArrayList<>(noteIds), next, hasMore);
+    }
+
+    // 先删除被覆盖的旧记录，再删除超过保留期的记录（多留出可见延迟，保证未过期的令牌不会漏掉变更）
+    @Scheduled(initialDelayString = "${sync.compact-interval-ms:3600000}",
+            fixedDelayString = "${sync.compact-interval-ms:3600000}")
+    public void compact() {
+        LocalDateTime now = LocalDateTime.now();
+        Duration lag = Duration.ofMillis(visibilityLagMillis);
+        int superseded = 0;
+        List<Long> ids;
+        do {
+            ids = noteChangeRepository.findSupersededIds(now.minus(lag), PageRequest.of(0, COMPACT_BATCH_SIZE));
+            if (!ids.isEmpty()) {
+                noteChangeRepository.deleteAllByIdInBatch(ids);
+                superseded += ids.size();
+            }
+        } while (ids.size() == COMPACT_BATCH_SIZE);
+        int expired = noteChangeRepository.deleteOlderThan(now.minusDays(retentionDays).minus(lag));
+        log.info("压缩笔记变更日志: 删除被覆盖的记录{}条, 过期记录{}条", superseded, expired);
+    }
+
+    // 令牌格式：base64url("序号|时间")，对客户端不透明
+    private String encodeToken(long seq, LocalDateTime time) {
+        String raw = seq + "|" + time;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private SyncToken decodeToken(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int sep = raw.indexOf('|');
+            return new SyncToken(Long.parseLong(raw.substring(0, sep)), LocalDateTime.parse(raw.substring(sep + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new RuntimeException("无效的同步令牌");
+        }
+    }
+
+    private static class SyncToken {
+        private final long seq;
+        private final LocalDateTime time;
+
+        private SyncToken(long seq, LocalDateTime time) {
+            this.seq = seq;
+            this.time = time;
+        }
+    }
+}
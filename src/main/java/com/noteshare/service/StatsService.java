@@ -0,0 +1,245 @@
+package com.noteshare.service;
+
+import com.noteshare.dto.AggregateStats;
+import com.noteshare.entity.Course;
+import com.noteshare.entity.NoteStatus;
+import com.noteshare.entity.User;
+import com.noteshare.event.DownloadCountsFlushedEvent;
+import com.noteshare.event.NoteCreatedEvent;
+import com.noteshare.event.NoteDeletedEvent;
+import com.noteshare.repository.NoteRepository;
+import com.noteshare.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+// 按课程和上传者维护的内存汇总（笔记数、总字节数、总下载次数、最近上传时间），
+// 由上传、删除和下载计数写回事件增量更新，查询为O(1)。
+// 事件与对账查询之间可能有少量重复或遗漏，由定时对账按数据库重新聚合纠正；
+// 删除笔记后的最近上传时间也要到下次对账才回退
+@Service
+public class StatsService {
+
+    private static final Logger log = LoggerFactory.getLogger(StatsService.class);
+
+    // 排行榜缓存多久重新计算一次
+    @Value("${stats.top-uploaders.refresh-ms:10000}")
+    private long topRefreshMs;
+
+    @Value("${stats.top-uploaders.size:50}")
+    private int topSize;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CourseService courseService;
+
+    private volatile Map<Long, Aggregate> byCourse = new ConcurrentHashMap<>();
+    private volatile Map<Long, Aggregate> byUser = new ConcurrentHashMap<>();
+    private volatile Aggregate total = new Aggregate();
+
+    private final AtomicReference<TopUploaders> topUploaders = new AtomicReference<>();
+
+    @EventListener
+    public void onNoteCreated(NoteCreatedEvent event) {
+        for (Aggregate aggregate : targets(event.getCourseId(), event.getUserId())) {
+            aggregate.add(1, event.getFileSize(), 0);
+            aggregate.touch(event.getCreatedTime());
+        }
+    }
+
+    // PENDING和FAILED的笔记没有计入过统计
+    @EventListener
+    public void onNoteDeleted(NoteDeletedEvent event) {
+        if (event.getStatus() != NoteStatus.READY) {
+            return;
+        }
+        for (Aggregate aggregate : targets(event.getCourseId(), event.getUserId())) {
+            aggregate.add(-1, -event.getFileSize(), -event.getDownloadCount());
+        }
+    }
+
+    // 一次写回只查一次笔记所属的课程和上传者
+    @EventListener
+    public void onDownloadCountsFlushed(DownloadCountsFlushedEvent event) {
+        Map<Long, Long> deltas = event.getDeltas();
+        if (deltas.isEmpty()) {
+            return;
+        }
+        for (Object[] row : noteRepository.findOwners(deltas.keySet())) {
+            long delta = deltas.get((Long) row[0]);
+            for (Aggregate aggregate : targets((Long) row[1], (Long) row[2])) {
+                aggregate.add(0, 0, delta);
+            }
+        }
+    }
+
+    // 启动时和之后定时按数据库重新聚合，整体替换内存汇总
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${stats.reconcile-interval-ms:600000}",
+            fixedDelayString = "${stats.reconcile-interval-ms:600000}")
+    public void reconcile() {
+        long start = System.currentTimeMillis();
+        Map<Long, Aggregate> courses = load(noteRepository.aggregateByCourse());
+        Map<Long, Aggregate> users = load(noteRepository.aggregateByUser());
+        Aggregate sum = new Aggregate();
+        for (Aggregate aggregate : courses.values()) {
+            sum.add(aggregate.noteCount.sum(), aggregate.totalBytes.sum(), aggregate.totalDownloads.sum());
+            sum.touch(aggregate.lastUploadTime());
+        }
+        byCourse = courses;
+        byUser = users;
+        total = sum;
+        topUploaders.set(null);
+        log.info("统计对账完成: {}门课程, {}位上传者, 耗时{}ms", courses.size(), users.size(),
+                System.currentTimeMillis() - start);
+    }
+
+    public AggregateStats getSummary() {
+        return total.toStats(null, null);
+    }
+
+    public AggregateStats getCourseStats(Long courseId) {
+        Aggregate aggregate = byCourse.get(courseId);
+        return aggregate == null ? new AggregateStats(courseId, null, 0, 0, 0, null) : aggregate.toStats(courseId, null);
+    }
+
+    public AggregateStats getUserStats(Long userId) {
+        Aggregate aggregate = byUser.get(userId);
+        return aggregate == null ? new AggregateStats(userId, null, 0, 0, 0, null) : aggregate.toStats(userId, null);
+    }
+
+    // 课程数量很少，直接按课程列表逐个取
+    public List<AggregateStats> getAllCourseStats() {
+        List<AggregateStats> result = new ArrayList<>();
+        for (Course course : courseService.getAllCourses()) {
+            AggregateStats stats = getCourseStats(course.getId());
+            stats.setName(course.getName());
+            result.add(stats);
+        }
+        return result;
+    }
+
+    // 排行榜按noteCount或totalDownloads排序；结果缓存一段时间，不在每次请求时遍历所有用户
+    public List<AggregateStats> getTopUploaders(String by, int limit) {
+        boolean byDownloads = "downloads".equalsIgnoreCase(by);
+        TopUploaders top = topUploaders.get();
+        if (top == null || System.currentTimeMillis() - top.computedAt > topRefreshMs) {
+            top = computeTopUploaders();
+            topUploaders.set(top);
+        }
+        List<AggregateStats> ranking = byDownloads ? top.byDownloads : top.byNotes;
+        return ranking.subList(0, Math.min(Math.max(limit, 0), ranking.size()));
+    }
+
+    private TopUploaders computeTopUploaders() {
+        List<AggregateStats> all = new ArrayList<>();
+        byUser.forEach((userId, aggregate) -> all.add(aggregate.toStats(userId, null)));
+        List<AggregateStats> byNotes = all.stream()
+                .sorted(Comparator.comparingLong(AggregateStats::getNoteCount).reversed())
+                .limit(topSize).collect(Collectors.toList());
+        List<AggregateStats> byDownloads = all.stream()
+                .sorted(Comparator.comparingLong(AggregateStats::getTotalDownloads).reversed())
+                .limit(topSize).collect(Collectors.toList());
+
+        // 只为上榜用户查一次用户名
+        Map<Long, String> names = new HashMap<>();
+        List<Long> ids = new ArrayList<>();
+        byNotes.forEach(stats -> ids.add(stats.getId()));
+        byDownloads.forEach(stats -> ids.add(stats.getId()));
+        for (User user : userRepository.findAllById(ids)) {
+            names.put(user.getId(), user.getUsername());
+        }
+        byNotes.forEach(stats -> stats.setName(names.get(stats.getId())));
+        byDownloads.forEach(stats -> stats.setName(names.get(stats.getId())));
+        return new TopUploaders(byNotes, byDownloads, System.currentTimeMillis());
+    }
+
+    private List<Aggregate> targets(Long courseId, Long userId) {
+        return List.of(byCourse.computeIfAbsent(courseId, id -> new Aggregate()),
+                byUser.computeIfAbsent(userId, id -> new Aggregate()),
+                total);
+    }
+
+    private Map<Long, Aggregate> load(List<Object[]> rows) {
+        Map<Long, Aggregate> result = new ConcurrentHashMap<>();
+        for (Object[] row : rows) {
+            Aggregate aggregate = new Aggregate();
+            aggregate.add(((Number) row[1]).longValue(), ((Number) row[2]).longValue(), ((Number) row[3]).longValue());
+            aggregate.touch((LocalDateTime) row[4]);
+            result.put((Long) row[0], aggregate);
+        }
+        return result;
+    }
+
+    private static class Aggregate {
+        private final LongAdder noteCount = new LongAdder();
+        private final LongAdder totalBytes = new LongAdder();
+        private final LongAdder totalDownloads = new LongAdder();
+        // 最近上传时间，存为纳秒精度的epoch值，便于原子地取最大值
+        private final AtomicLong lastUpload = new AtomicLong(Long.MIN_VALUE);
+
+        private void add(long notes, long bytes, long downloads) {
+            noteCount.add(notes);
+            totalBytes.add(bytes);
+            totalDownloads.add(downloads);
+        }
+
+        private void touch(LocalDateTime time) {
+            if (time != null) {
+                lastUpload.accumulateAndGet(toEpochNanos(time), Math::max);
+            }
+        }
+
+        private LocalDateTime lastUploadTime() {
+            long value = lastUpload.get();
+            if (value == Long.MIN_VALUE) {
+                return null;
+            }
+            return LocalDateTime.ofEpochSecond(Math.floorDiv(value, 1_000_000_000L),
+                    (int) Math.floorMod(value, 1_000_000_000L), ZoneOffset.UTC);
+        }
+
+        private AggregateStats toStats(Long id, String name) {
+            return new AggregateStats(id, name, noteCount.sum(), totalBytes.sum(), totalDownloads.sum(), lastUploadTime());
+        }
+
+        private static long toEpochNanos(LocalDateTime time) {
+            return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + time.getNano();
+        }
+    }
+
+    private static class TopUploaders {
+        private final List<AggregateStats> byNotes;
+        private final List<AggregateStats> byDownloads;
+        private final long computedAt;
+
+        private TopUploaders(List<AggregateStats> byNotes, List<AggregateStats> byDownloads, long computedAt) {
+            this.byNotes = byNotes;
+            this.byDownloads = byDownloads;
+            this.computedAt = computedAt;
+        }
+    }
+}
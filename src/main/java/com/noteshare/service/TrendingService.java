@@ -0,0 +1,246 @@
+package com.noteshare.service;
+
+import com.noteshare.cache.CountMinSketch;
+import com.noteshare.dto.NoteResponse;
+import com.noteshare.dto.TrendingNoteResponse;
+import com.noteshare.event.DownloadCountsFlushedEvent;
+import com.noteshare.event.NoteDeletedEvent;
+import com.noteshare.repository.NoteRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// 热门笔记排行：由下载计数写回事件驱动，按时间指数衰减的下载次数排序。
+// 每个时间窗口一个Count-Min Sketch估计所有笔记的衰减分数，另外只为全站和每门课程
+// 各保留有限个候选笔记，内存与笔记总数无关。
+// 衰减用forward decay：下载按 e^(λ(t - 基准时间)) 加权累加，比较时所有分数乘的是同一个系数，
+// 不需要随时间逐个更新；基准时间过久时整体缩放一次防止溢出。
+// 榜单在每次写回后增量刷新为快照，请求只读快照
+@Service
+public class TrendingService {
+
+    // 全站榜单在候选表中的范围键；课程id从1开始
+    private static final long ALL_COURSES = 0L;
+
+    // 每个范围返回的最多条数，候选表保留其两倍
+    @Value("${trending.top-size:50}")
+    private int topSize;
+
+    @Value("${trending.sketch.depth:4}")
+    private int sketchDepth;
+
+    @Value("${trending.sketch.width:16384}")
+    private int sketchWidth;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private NoteService noteService;
+
+    @Autowired
+    private DownloadCounterService downloadCounterService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<Window, Ranker> rankers = new EnumMap<>(Window.class);
+
+    // 窗口 -> 范围 -> 排好序的榜单
+    private volatile Map<Window, Map<Long, List<TrendingNoteResponse>>> snapshots = new EnumMap<>(Window.class);
+
+    @PostConstruct
+    public void init() {
+        long now = System.currentTimeMillis();
+        for (Window window : Window.values()) {
+            rankers.put(window, new Ranker(window, new CountMinSketch(sketchDepth, sketchWidth), now));
+        }
+        Gauge.builder("note.trending.sketch.bytes", rankers,
+                r -> r.values().stream().mapToLong(ranker -> ranker.sketch.sizeInBytes()).sum())
+                .baseUnit("bytes").register(meterRegistry);
+    }
+
+    public enum Window {
+        DAY(1), WEEK(7), MONTH(30);
+
+        // 半衰期：一个窗口之前的下载权重减半
+        private final long halfLifeMillis;
+
+        Window(int days) {
+            this.halfLifeMillis = days * 24L * 3600 * 1000;
+        }
+
+        public static Window parse(String value) {
+            if (value == null || value.isEmpty()) {
+                return WEEK;
+            }
+            try {
+                return valueOf(value.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new RuntimeException("无效的时间窗口，仅支持: day, week, month");
+            }
+        }
+    }
+
+    public List<TrendingNoteResponse> getTrending(Long courseId, String window, int limit) {
+        long stamp = downloadCounterService.readStamp();
+        List<TrendingNoteResponse> ranking = snapshots.getOrDefault(Window.parse(window), Map.of())
+                .getOrDefault(courseId == null ? ALL_COURSES : courseId, List.of());
+        int size = Math.min(Math.max(limit, 0), ranking.size());
+        List<TrendingNoteResponse> result = new ArrayList<>(size);
+        for (TrendingNoteResponse row : ranking.subList(0, size)) {
+            TrendingNoteResponse copy = new TrendingNoteResponse(row, row.getScore());
+            noteService.convertToResponse(copy, null, stamp);
+            result.add(copy);
+        }
+        return result;
+    }
+
+    @EventListener
+    public void onDownloadCountsFlushed(DownloadCountsFlushedEvent event) {
+        Map<Long, Long> deltas = event.getDeltas();
+        if (deltas.isEmpty()) {
+            return;
+        }
+        Map<Long, Long> courses = new HashMap<>();
+        for (Object[] row : noteRepository.findOwners(deltas.keySet())) {
+            courses.put((Long) row[0], (Long) row[1]);
+        }
+
+        long now = System.currentTimeMillis();
+        Set<Long> candidateIds = new HashSet<>();
+        synchronized (rankers) {
+            for (Ranker ranker : rankers.values()) {
+                ranker.renormalizeIfNeeded(now);
+                courses.forEach((noteId, courseId) -> ranker.record(noteId, courseId, deltas.get(noteId), now));
+                ranker.collectCandidates(candidateIds);
+            }
+        }
+        refreshSnapshots(candidateIds, now);
+    }
+
+    // 被删除的笔记直接从候选表和当前榜单中去掉，不重新查询
+    @EventListener
+    public void onNoteDeleted(NoteDeletedEvent event) {
+        synchronized (rankers) {
+            for (Ranker ranker : rankers.values()) {
+                ranker.remove(event.getNoteId());
+            }
+            Map<Window, Map<Long, List<TrendingNoteResponse>>> next = new EnumMap<>(Window.class);
+            snapshots.forEach((window, scopes) -> {
+                Map<Long, List<TrendingNoteResponse>> filtered = new HashMap<>();
+                scopes.forEach((scope, rows) -> {
+                    List<TrendingNoteResponse> kept = new ArrayList<>(rows);
+                    kept.removeIf(row -> row.getId().equals(event.getNoteId()));
+                    filtered.put(scope, kept);
+                });
+                next.put(window, filtered);
+            });
+            snapshots = next;
+        }
+    }
+
+    // 一次查询取出所有候选笔记的信息，再按各范围的分数排序生成新快照
+    private void refreshSnapshots(Set<Long> candidateIds, long now) {
+        Map<Long, NoteResponse> rows = new HashMap<>();
+        List<Long> ids = new ArrayList<>(candidateIds);
+        for (int from = 0; from < ids.size(); from += 500) {
+            for (NoteResponse row : noteRepository.findResponsesByIdIn(ids.subList(from, Math.min(from + 500, ids.size())))) {
+                rows.put(row.getId(), row);
+            }
+        }
+
+        Map<Window, Map<Long, List<TrendingNoteResponse>>> next = new EnumMap<>(Window.class);
+        synchronized (rankers) {
+            for (Ranker ranker : rankers.values()) {
+                next.put(ranker.window, ranker.rank(rows, now));
+            }
+            snapshots = next;
+        }
+    }
+
+    private class Ranker {
+        private final Window window;
+        private final CountMinSketch sketch;
+        private final double lambda;
+        private long landmark;
+        // 范围 -> 候选笔记id -> 未衰减的分数
+        private final Map<Long, Map<Long, Double>> candidates = new HashMap<>();
+
+        private Ranker(Window window, CountMinSketch sketch, long now) {
+            this.window = window;
+            this.sketch = sketch;
+            this.lambda = Math.log(2) / window.halfLifeMillis;
+            this.landmark = now;
+        }
+
+        private void record(Long noteId, Long courseId, long delta, long now) {
+            double estimate = sketch.add(noteId, delta * Math.exp(lambda * (now - landmark)));
+            offer(ALL_COURSES, noteId, estimate);
+            offer(courseId, noteId, estimate);
+        }
+
+        // 已在候选表中的更新分数；候选表满时替换分数最低的一条
+        private void offer(long scope, Long noteId, double score) {
+            Map<Long, Double> scoped = candidates.computeIfAbsent(scope, s -> new HashMap<>());
+            if (scoped.containsKey(noteId) || scoped.size() < topSize * 2) {
+                scoped.put(noteId, score);
+                return;
+            }
+            Map.Entry<Long, Double> lowest = Collections.min(scoped.entrySet(), Map.Entry.comparingByValue());
+            if (score > lowest.getValue()) {
+                scoped.remove(lowest.getKey());
+                scoped.put(noteId, score);
+            }
+        }
+
+        private void remove(Long noteId) {
+            candidates.values().forEach(scoped -> scoped.remove(noteId));
+        }
+
+        // 指数超过一定值时把基准时间移到现在，所有分数同比例缩小
+        private void renormalizeIfNeeded(long now) {
+            double exponent = lambda * (now - landmark);
+            if (exponent < 20) {
+                return;
+            }
+            double factor = Math.exp(-exponent);
+            sketch.scale(factor);
+            candidates.values().forEach(scoped -> scoped.replaceAll((id, score) -> score * factor));
+            landmark = now;
+        }
+
+        private void collectCandidates(Set<Long> ids) {
+            candidates.values().forEach(scoped -> ids.addAll(scoped.keySet()));
+        }
+
+        private Map<Long, List<TrendingNoteResponse>> rank(Map<Long, NoteResponse> rows, long now) {
+            double decay = Math.exp(-lambda * (now - landmark));
+            Map<Long, List<TrendingNoteResponse>> result = new HashMap<>();
+            candidates.forEach((scope, scoped) -> {
+                List<TrendingNoteResponse> ranking = new ArrayList<>();
+                scoped.entrySet().stream()
+                        .sorted(Map.Entry.<Long, Double>comparingByValue().reversed())
+                        .filter(entry -> rows.containsKey(entry.getKey()))
+                        .limit(topSize)
+                        .forEach(entry -> ranking.add(new TrendingNoteResponse(
+                                rows.get(entry.getKey()), entry.getValue() * decay)));
+                result.put(scope, ranking);
+            });
+            return result;
+        }
+    }
+}
@@ -1,10 +1,13 @@
 package com.noteshare.service;
 
+import com.noteshare.auth.PasswordHasher;
+import com.noteshare.cache.UserExistenceFilter;
+import com.noteshare.datasource.ReplicaRouting;
 import com.noteshare.entity.User;
 import com.noteshare.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
-import java.util.Optional;
 
 @Service
 public class UserService {
@@ -12,26 +15,73 @@ public class UserService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    @Autowired
+    private UserExistenceFilter userExistenceFilter;
+
+    @Autowired
+    private ReplicaRouting replicaRouting;
+
     public User register(User user) {
-        if (userRepository.existsByUsername(user.getUsername())) {
+        if (!isUsernameAvailable(user.getUsername())) {
             throw new RuntimeException("用户名已存在");
         }
 
-        if (user.getEmail() != null && userRepository.existsByEmail(user.getEmail())) {
+        if (user.getEmail() != null && !isEmailAvailable(user.getEmail())) {
             throw new RuntimeException("邮箱已被注册");
         }
 
-        return userRepository.save(user);
+        user.setPassword(passwordHasher.hash(user.getPassword()));
+        User saved;
+        try {
+            saved = userRepository.save(user);
+        } catch (DataIntegrityViolationException e) {
+            // 并发注册或其他节点刚注册的同名用户，由唯一索引拦下
+            throw new RuntimeException("用户名或邮箱已被注册");
+        }
+        userExistenceFilter.add(saved.getUsername(), saved.getEmail());
+        return saved;
+    }
+
+    // 本节点过滤器里没有时不查库；其他节点刚注册的用户名最多滞后auth.availability.sync-ms才补进过滤器
+    public boolean isUsernameAvailable(String username) {
+        if (!userExistenceFilter.mightContainUsername(username)) {
+            return true;
+        }
+        boolean exists = userRepository.existsByUsername(username);
+        if (!exists) {
+            userExistenceFilter.recordFalsePositive();
+        }
+        return !exists;
+    }
+
+    public boolean isEmailAvailable(String email) {
+        if (!userExistenceFilter.mightContainEmail(email)) {
+            return true;
+        }
+        boolean exists = userRepository.existsByEmail(email);
+        if (!exists) {
+            userExistenceFilter.recordFalsePositive();
+        }
+        return !exists;
     }
 
     public User login(String username, String password) {
-        Optional<User> userOptional = userRepository.findByUsername(username);
-        if (userOptional.isPresent()) {
-            User user = userOptional.get();
-            if (user.getPassword().equals(password)) {
-                return user;
-            }
-        }
-        throw new RuntimeException("用户名或密码错误");
+        // 先查副本；刚注册的用户副本上可能还没有，查不到时再查主库
+        User user = replicaRouting.read(() -> userRepository.findByUsername(username))
+                .orElseGet(() -> userRepository.findByUsername(username).orElse(null));
+        // 用户不存在时matches也会做一次哈希并返回false
+        if (!passwordHasher.matches(password, user == null ? null : user.getPassword())) {
+            throw new RuntimeException("用户名或密码错误");
+        }
+
+        // 早期注册的明文密码在登录成功时迁移为哈希
+        if (passwordHasher.needsRehash(user.getPassword())) {
+            user.setPassword(passwordHasher.hash(password));
+            user = userRepository.save(user);
+        }
+        return user;
     }
-}
\ No newline at end of file
+}
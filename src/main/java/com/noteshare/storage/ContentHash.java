@@ -0,0 +1,42 @@
+package com.noteshare.storage;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+final class ContentHash {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private ContentHash() {
+    }
+
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+
+    // 存储键会拼进文件路径，必须是64位小写十六进制
+    static void checkKey(String key) {
+        if (key == null || key.length() != 64) {
+            throw new IllegalArgumentException("非法的存储键: " + key);
+        }
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                throw new IllegalArgumentException("非法的存储键: " + key);
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.noteshare.storage;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+// 内存存储，模拟不在本机磁盘上的共享对象存储，用于本地测试多节点部署
+@Component
+@ConditionalOnProperty(name = "file.storage.type", havingValue = "memory")
+public class InMemoryStorage implements StorageBackend {
+
+    private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+
+    @Override
+    public StoredBlob store(InputStream in) throws IOException {
+        byte[] content = in.readAllBytes();
+        String key = ContentHash.toHex(ContentHash.newDigest().digest(content));
+        objects.putIfAbsent(key, content);
+        return new StoredBlob(key, content.length, "memory://" + key);
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return objects.containsKey(key);
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return new ByteArrayInputStream(get(key));
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        return get(key).length;
+    }
+
+    @Override
+    public Optional<Path> localPath(String key) {
+        return Optional.empty();
+    }
+
+    @Override
+    public void delete(String key) {
+        objects.remove(key);
+    }
+
+    private byte[] get(String key) throws FileNotFoundException {
+        byte[] content = objects.get(key);
+        if (content == null) {
+            throw new FileNotFoundException(key);
+        }
+        return content;
+    }
+}
@@ -0,0 +1,104 @@
+package com.noteshare.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.Optional;
+
+// 本地内容寻址存储：objects/ab/cd/<sha256>，先写tmp目录再原子rename
+@Component
+@ConditionalOnProperty(name = "file.storage.type", havingValue = "local", matchIfMissing = true)
+public class LocalContentAddressedStorage implements StorageBackend {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path objectsDir;
+    private final Path tmpDir;
+
+    public LocalContentAddressedStorage(@Value("${file.upload-dir:uploads}") String uploadDir) throws IOException {
+        Path root = Paths.get(uploadDir);
+        this.objectsDir = root.resolve("objects");
+        this.tmpDir = root.resolve("tmp");
+        Files.createDirectories(objectsDir);
+        Files.createDirectories(tmpDir);
+    }
+
+    @Override
+    public StoredBlob store(InputStream in) throws IOException {
+        MessageDigest digest = ContentHash.newDigest();
+        Path tmp = Files.createTempFile(tmpDir, "upload-", ".part");
+        long size = 0;
+        try {
+            try (FileOutputStream out = new FileOutputStream(tmp.toFile())) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                    out.write(buffer, 0, read);
+                    size += read;
+                }
+                out.getFD().sync();
+            }
+
+            String key = ContentHash.toHex(digest.digest());
+            Path target = resolve(key);
+            if (!Files.exists(target)) {
+                Files.createDirectories(target.getParent());
+                try {
+                    Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException e) {
+                    // 并发上传了相同内容，已有的那份即可
+                }
+            }
+            return new StoredBlob(key, size, target.toString());
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.exists(resolve(key));
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        Path path = resolve(key);
+        if (!Files.exists(path)) {
+            throw new FileNotFoundException(key);
+        }
+        return Files.newInputStream(path);
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        return Files.size(resolve(key));
+    }
+
+    @Override
+    public Optional<Path> localPath(String key) {
+        return Optional.of(resolve(key));
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(resolve(key));
+    }
+
+    // 两级目录分片，避免单目录文件过多
+    private Path resolve(String key) {
+        ContentHash.checkKey(key);
+        return objectsDir.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+    }
+}
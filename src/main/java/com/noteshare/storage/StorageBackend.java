@@ -0,0 +1,25 @@
+package com.noteshare.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+
+// 笔记文件存储后端，按内容寻址：相同内容只存一份，键为SHA-256
+public interface StorageBackend {
+
+    // 边读边计算哈希写入，内容已存在时直接返回已有对象
+    StoredBlob store(InputStream in) throws IOException;
+
+    boolean exists(String key);
+
+    InputStream open(String key) throws IOException;
+
+    long size(String key) throws IOException;
+
+    // 本地文件系统后端返回文件路径，下载时可以走零拷贝；其他后端返回empty
+    Optional<Path> localPath(String key);
+
+    // 删除对象，调用方负责确认已没有笔记引用它
+    void delete(String key) throws IOException;
+}
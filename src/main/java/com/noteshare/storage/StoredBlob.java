@@ -0,0 +1,12 @@
+package com.noteshare.storage;
+
+import lombok.Data;
+
+@Data
+public class StoredBlob {
+    // 内容的SHA-256（十六进制），同时作为存储键
+    private final String key;
+    private final long size;
+    // 存储后端内部的位置描述，写入Note.filePath便于排查
+    private final String location;
+}
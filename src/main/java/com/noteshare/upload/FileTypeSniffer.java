@@ -0,0 +1,55 @@
+package com.noteshare.upload;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+// 按文件头魔数判断真实类型，不信任扩展名
+final class FileTypeSniffer {
+
+    private static final byte[] PDF = "%PDF-".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+    private static final byte[] JPEG = {(byte) 0xff, (byte) 0xd8, (byte) 0xff};
+    private static final byte[] GIF87 = "GIF87a".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] GIF89 = "GIF89a".getBytes(StandardCharsets.US_ASCII);
+
+    private FileTypeSniffer() {
+    }
+
+    static boolean matches(Path file, String fileType) throws IOException {
+        byte[] head = new byte[8];
+        int read;
+        try (InputStream in = Files.newInputStream(file)) {
+            read = in.readNBytes(head, 0, head.length);
+        }
+        byte[] header = Arrays.copyOf(head, read);
+        switch (fileType) {
+            case "pdf":
+                return startsWith(header, PDF);
+            case "png":
+                return startsWith(header, PNG);
+            case "jpg":
+            case "jpeg":
+                return startsWith(header, JPEG);
+            case "gif":
+                return startsWith(header, GIF87) || startsWith(header, GIF89);
+            default:
+                return false;
+        }
+    }
+
+    private static boolean startsWith(byte[] header, byte[] magic) {
+        if (header.length < magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if (header[i] != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,97 @@
+package com.noteshare.upload;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+// 生成PNG预览图：图片生成缩略图，PDF渲染首页
+@Component
+public class PreviewGenerator {
+
+    @Value("${upload.preview.max-width:320}")
+    private int maxWidth;
+
+    // 超过该像素数的图片不生成预览，防止解压炸弹撑爆内存
+    @Value("${upload.preview.max-pixels:100000000}")
+    private long maxPixels;
+
+    // 无法生成时返回null
+    public byte[] generate(Path file, String fileType) throws IOException {
+        BufferedImage source = "pdf".equals(fileType) ? renderFirstPage(file) : readImage(file);
+        if (source == null) {
+            return null;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(scale(source), "png", out);
+        return out.toByteArray();
+    }
+
+    private BufferedImage renderFirstPage(Path file) throws IOException {
+        try (PDDocument document = PDDocument.load(file.toFile(), MemoryUsageSetting.setupTempFileOnly())) {
+            if (document.getNumberOfPages() == 0) {
+                return null;
+            }
+            return new PDFRenderer(document).renderImageWithDPI(0, 72, ImageType.RGB);
+        }
+    }
+
+    // 先读尺寸，大图按比例降采样读取，只解码需要的像素
+    private BufferedImage readImage(Path file) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    return null;
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, width / (maxWidth * 2));
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private BufferedImage scale(BufferedImage source) {
+        if (source.getWidth() <= maxWidth) {
+            return source;
+        }
+        int height = Math.max(1, source.getHeight() * maxWidth / source.getWidth());
+        BufferedImage target = new BufferedImage(maxWidth, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            // 透明背景填成白色
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, maxWidth, height);
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(source, 0, 0, maxWidth, height, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+}
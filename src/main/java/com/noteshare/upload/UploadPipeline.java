@@ -0,0 +1,295 @@
+package com.noteshare.upload;
+
+import com.noteshare.dto.BatchItemResult;
+import com.noteshare.entity.Course;
+import com.noteshare.entity.Note;
+import com.noteshare.entity.NoteStatus;
+import com.noteshare.repository.NoteRepository;
+import com.noteshare.service.NoteService;
+import com.noteshare.storage.StorageBackend;
+import com.noteshare.storage.StoredBlob;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// 异步上传流水线：请求线程只负责落临时文件并返回PENDING的笔记id，
+// 后台有界线程池依次做魔数校验、内容寻址存储、生成预览图、入库标记READY
+@Service
+public class UploadPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadPipeline.class);
+
+    @Value("${upload.pipeline.workers:4}")
+    private int workers;
+
+    @Value("${upload.pipeline.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Value("${upload.batch.max-files:50}")
+    private int batchMaxFiles;
+
+    // 超过该时长仍为PENDING的上传视为丢失（如所在节点宕机后没有再启动），标记为失败
+    @Value("${upload.pipeline.stale-after-minutes:30}")
+    private long staleAfterMinutes;
+
+    @Autowired
+    private NoteService noteService;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Autowired
+    private PreviewGenerator previewGenerator;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private ThreadPoolExecutor executor;
+
+    // 处理中和排队中的上传总数上限，拿不到许可直接拒绝。
+    // 许可在任务末尾归还时工作线程还没空出来，队列按许可总数留足，新任务不会因此被线程池拒绝
+    private Semaphore slots;
+
+    private Counter rejected;
+
+    // 已接收的上传字节数（Prometheus中用rate()得到每秒字节数）
+    private Counter uploadBytes;
+
+    @PostConstruct
+    public void init() {
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(workers + queueCapacity), new CustomizableThreadFactory("upload-"));
+        slots = new Semaphore(workers + queueCapacity);
+        rejected = meterRegistry.counter("note.upload.rejected");
+        uploadBytes = Counter.builder("note.upload.bytes").baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("note.upload.queue.size", executor, e -> e.getQueue().size()).register(meterRegistry);
+        Gauge.builder("note.upload.active", executor, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+    }
+
+    public Note accept(String title, String description, Long courseId,
+                       MultipartFile file, Long userId) throws IOException {
+        if (!slots.tryAcquire()) {
+            rejected.increment();
+            throw new UploadRejectedException("上传处理繁忙，请稍后重试");
+        }
+        try {
+            Note note = stage("receive", () -> noteService.receiveUpload(title, description, courseId, file, userId));
+            Path tempFile = Paths.get(note.getFilePath());
+            if (!dispatch(note, tempFile)) {
+                throw new UploadRejectedException("上传处理繁忙，请稍后重试");
+            }
+            uploadBytes.increment(note.getFileSize());
+            return note;
+        } catch (IOException | RuntimeException e) {
+            slots.release();
+            throw e;
+        }
+    }
+
+    // 批量上传：许可一次拿齐，逐个校验落临时文件，合格的笔记一次批量插入，
+    // 之后每个文件照常进入后台流水线并行处理；单个文件不合格或未能进入流水线不影响其他文件
+    public List<BatchItemResult> acceptBatch(List<String> titles, String description, Long courseId,
+                                             List<MultipartFile> files, Long userId) throws IOException {
+        if (files.isEmpty()) {
+            throw new RuntimeException("请选择要上传的文件");
+        }
+        if (files.size() > batchMaxFiles) {
+            throw new RuntimeException("单次最多上传" + batchMaxFiles + "个文件");
+        }
+        if (!slots.tryAcquire(files.size())) {
+            rejected.increment();
+            throw new UploadRejectedException("上传处理繁忙，请稍后重试");
+        }
+
+        List<BatchItemResult> results = new ArrayList<>(files.size());
+        List<Note> accepted = new ArrayList<>(files.size());
+        try {
+            Course course = noteService.getCourse(courseId);
+            for (int i = 0; i < files.size(); i++) {
+                MultipartFile file = files.get(i);
+                String title = i < titles.size() && !titles.get(i).isEmpty() ? titles.get(i) : baseName(file);
+                try {
+                    Note note = stage("receive", () -> noteService.prepareUpload(title, description, course, file, userId));
+                    accepted.add(note);
+                    results.add(null);
+                } catch (IOException | RuntimeException e) {
+                    results.add(BatchItemResult.failed(null, file.getOriginalFilename(), e.getMessage()));
+                }
+            }
+            stage("persist-pending", () -> {
+                noteService.savePending(accepted);
+                return null;
+            });
+        } catch (IOException | RuntimeException e) {
+            accepted.forEach(note -> deleteQuietly(Paths.get(note.getFilePath())));
+            slots.release(files.size());
+            throw e;
+        }
+
+        // 不合格的文件没有进入流水线，许可直接归还
+        slots.release(files.size() - accepted.size());
+        int next = 0;
+        for (int i = 0; i < results.size(); i++) {
+            if (results.get(i) == null) {
+                Note note = accepted.get(next++);
+                if (!dispatch(note, Paths.get(note.getFilePath()))) {
+                    slots.release();
+                    results.set(i, BatchItemResult.failed(note.getId(), note.getFileName(), "上传处理繁忙，请重新上传"));
+                    continue;
+                }
+                uploadBytes.increment(note.getFileSize());
+                results.set(i, BatchItemResult.ok(note.getId(), note.getFileName(), "笔记已上传，正在处理"));
+            }
+        }
+        return results;
+    }
+
+    // 服务重启时本节点处理中的上传已丢失，标记为失败让用户重新上传；其他节点正在处理的上传不动
+    @EventListener(ApplicationReadyEvent.class)
+    public void failInterruptedUploads() {
+        for (Note note : noteRepository.findByStatus(NoteStatus.PENDING)) {
+            if (noteService.isLocalUpload(note)) {
+                noteService.failUpload(note.getId(), "服务重启导致处理中断，请重新上传");
+                deleteQuietly(Paths.get(note.getFilePath()));
+            }
+        }
+    }
+
+    // 任一节点上长时间未完成的上传标记为失败；临时文件在接收它的节点上，由该节点重启时清理
+    @Scheduled(fixedDelayString = "${upload.pipeline.stale-check-ms:300000}")
+    public void failStaleUploads() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(staleAfterMinutes);
+        for (Note note : noteRepository.findByStatusAndCreatedTimeBefore(NoteStatus.PENDING, cutoff)) {
+            noteService.failUpload(note.getId(), "处理超时，请重新上传");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    // 线程池已关闭（节点正在停机）时拒绝：笔记已按PENDING入库，直接标记失败并删掉临时文件，不等超时清理
+    private boolean dispatch(Note note, Path tempFile) {
+        try {
+            executor.execute(() -> process(note.getId(), tempFile, note.getFileType()));
+            return true;
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            noteService.failUpload(note.getId(), "上传处理繁忙，请重新上传");
+            deleteQuietly(tempFile);
+            return false;
+        }
+    }
+
+    private void process(Long noteId, Path tempFile, String fileType) {
+        StoredBlob blob = null;
+        StoredBlob preview = null;
+        try {
+            boolean valid = stage("validate", () -> FileTypeSniffer.matches(tempFile, fileType));
+            if (!valid) {
+                noteService.failUpload(noteId, "文件内容与扩展名不符");
+                return;
+            }
+
+            blob = stage("store", () -> {
+                try (InputStream in = Files.newInputStream(tempFile)) {
+                    return storageBackend.store(in);
+                }
+            });
+
+            preview = stage("preview", () -> storePreview(noteId, tempFile, fileType));
+
+            StoredBlob stored = blob;
+            StoredBlob storedPreview = preview;
+            stage("persist", () -> {
+                noteService.completeUpload(noteId, stored, storedPreview, tempFile);
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("处理上传失败: note={}", noteId, e);
+            noteService.failUpload(noteId, "文件处理失败: " + e.getMessage());
+            noteService.discardBlobs(blob, preview);
+        } finally {
+            deleteQuietly(tempFile);
+            slots.release();
+        }
+    }
+
+    // 预览图生成失败不影响笔记本身
+    private StoredBlob storePreview(Long noteId, Path tempFile, String fileType) {
+        try {
+            byte[] png = previewGenerator.generate(tempFile, fileType);
+            return png == null ? null : storageBackend.store(new ByteArrayInputStream(png));
+        } catch (IOException | RuntimeException e) {
+            log.warn("生成预览图失败: note={}, {}", noteId, e.getMessage());
+            return null;
+        }
+    }
+
+    private <T> T stage(String name, Stage<T> stage) throws IOException {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "success";
+        try {
+            return stage.run();
+        } catch (IOException | RuntimeException e) {
+            outcome = "error";
+            throw e;
+        } finally {
+            sample.stop(meterRegistry.timer("note.upload.stage", "stage", name, "outcome", outcome));
+        }
+    }
+
+    private String baseName(MultipartFile file) {
+        String name = file.getOriginalFilename();
+        if (name == null || name.isEmpty()) {
+            return "未命名笔记";
+        }
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("删除临时文件失败: {}", file);
+        }
+    }
+
+    private interface Stage<T> {
+        T run() throws IOException;
+    }
+}
@@ -0,0 +1,8 @@
+package com.noteshare.upload;
+
+// 上传处理队列已满，控制器据此返回429
+public class UploadRejectedException extends RuntimeException {
+    public UploadRejectedException(String message) {
+        super(message);
+    }
+}
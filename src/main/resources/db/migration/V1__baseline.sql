@@ -0,0 +1,39 @@
+-- 初始表结构，与引入Flyway之前ddl-auto=update在MySQL 8上生成的结构一致（尚无文件存储键、预览和处理状态）。
+-- 已有数据库由spring.flyway.baseline-on-migrate标记为版本1，不会执行本脚本，从V2开始补齐
+
+CREATE TABLE course (
+    id           BIGINT       NOT NULL AUTO_INCREMENT,
+    name         VARCHAR(100) NOT NULL,
+    code         VARCHAR(50),
+    created_time DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_course_code UNIQUE (code)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+CREATE TABLE user (
+    id           BIGINT       NOT NULL AUTO_INCREMENT,
+    username     VARCHAR(50)  NOT NULL,
+    password     VARCHAR(255) NOT NULL,
+    email        VARCHAR(100),
+    created_time DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_user_username UNIQUE (username),
+    CONSTRAINT uk_user_email UNIQUE (email)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+CREATE TABLE note (
+    id             BIGINT       NOT NULL AUTO_INCREMENT,
+    title          VARCHAR(200) NOT NULL,
+    description    TEXT,
+    file_name      VARCHAR(255) NOT NULL,
+    file_path      VARCHAR(255) NOT NULL,
+    file_size      BIGINT       NOT NULL,
+    file_type      VARCHAR(10)  NOT NULL,
+    course_id      BIGINT       NOT NULL,
+    user_id        BIGINT       NOT NULL,
+    download_count INT,
+    created_time   DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT fk_note_course FOREIGN KEY (course_id) REFERENCES course (id),
+    CONSTRAINT fk_note_user FOREIGN KEY (user_id) REFERENCES user (id)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
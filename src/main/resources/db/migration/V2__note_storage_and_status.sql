@@ -0,0 +1,7 @@
+-- 按内容寻址的文件存储键、预览图存储键，以及异步上传的处理状态和失败原因。
+-- 已有笔记的文件都已就绪：status的默认值让加列时已有的行直接成为READY；
+-- storage_key为空表示早期直接存放在file_path的文件，下载和删除时按旧路径处理
+ALTER TABLE note ADD COLUMN storage_key VARCHAR(64);
+ALTER TABLE note ADD COLUMN preview_key VARCHAR(64);
+ALTER TABLE note ADD COLUMN status VARCHAR(10) DEFAULT 'READY';
+ALTER TABLE note ADD COLUMN failure_reason VARCHAR(200);
@@ -0,0 +1,22 @@
+-- NoteRepository各查询使用的索引。
+-- 列表分页都是 status = 'READY' 加 (created_time, id) 倒序的游标条件，索引按同样顺序排列，
+-- 每页只需从索引中顺序读取 size+1 条，不再全表扫描加filesort。
+-- 索引列声明为DESC（MySQL 8.0起生效），与查询的排序方向一致，按索引正向读取
+
+-- /api/notes/list：findFirstPage、findPageBefore；findByStatus、启动时的PENDING检查也用它
+CREATE INDEX idx_note_status_created ON note (status, created_time DESC, id DESC);
+
+-- /api/notes/course/{id}：findFirstPageByCourse、findPageByCourseBefore；
+-- 同时作为course_id外键索引，也用于统计对账的按课程聚合和打包下载的按课程过滤
+CREATE INDEX idx_note_course_status_created ON note (course_id, status, created_time DESC, id DESC);
+
+-- /api/notes/my-notes：findFirstPageByUser、findPageByUserBefore；同时作为user_id外键索引
+CREATE INDEX idx_note_user_status_created ON note (user_id, status, created_time DESC, id DESC);
+
+-- 删除笔记时判断对象是否仍被引用：countByStorageKey、findReferencedStorageKeys，
+-- 以及预览图的countByPreviewKey、findReferencedPreviewKeys；只查索引即可得到结果
+CREATE INDEX idx_note_storage_key ON note (storage_key);
+CREATE INDEX idx_note_preview_key ON note (preview_key);
+
+-- 其余按id的查询（findById、id in、id > ? order by id）走主键；
+-- 用户名、邮箱的查找和存在性检查走V1中的唯一索引
@@ -0,0 +1,21 @@
+-- 笔记变更日志，供 /api/notes/sync 增量同步。自增id即变更序号，单调递增；
+-- UPSERT表示笔记新增或下载次数变化，DELETE为删除后留下的墓碑。
+-- 同一笔记只需最新一条，旧记录和超过保留期的记录由NoteSyncService定期压缩
+
+CREATE TABLE note_change (
+    id           BIGINT      NOT NULL AUTO_INCREMENT,
+    note_id      BIGINT      NOT NULL,
+    course_id    BIGINT      NOT NULL,
+    type         VARCHAR(10) NOT NULL,
+    changed_time DATETIME(6) NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+-- 按课程同步：course_id = ? and id > ? order by id
+CREATE INDEX idx_note_change_course ON note_change (course_id, id);
+
+-- 压缩时查找同一笔记是否有更新的记录
+CREATE INDEX idx_note_change_note ON note_change (note_id, id);
+
+-- 按时间删除超过保留期的记录
+CREATE INDEX idx_note_change_time ON note_change (changed_time);
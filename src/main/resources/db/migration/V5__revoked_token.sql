@@ -0,0 +1,13 @@
+-- 已吊销的令牌：注销的访问令牌和刷新令牌、已用过的刷新令牌。
+-- 各节点把它同步到内存里校验访问令牌（见TokenRevocationList），不必每次请求查库；
+-- jti作主键：同一个刷新令牌在多个节点上并发刷新时只有一次插入成功。时间均为epoch秒
+CREATE TABLE revoked_token (
+    jti        BIGINT NOT NULL,
+    expires_at BIGINT NOT NULL,
+    revoked_at BIGINT NOT NULL,
+    PRIMARY KEY (jti)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+-- 定期同步新吊销的记录；清理过期记录
+CREATE INDEX idx_revoked_token_revoked_at ON revoked_token (revoked_at);
+CREATE INDEX idx_revoked_token_expires_at ON revoked_token (expires_at);
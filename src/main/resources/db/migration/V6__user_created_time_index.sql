@@ -0,0 +1,2 @@
+-- 各节点定期按注册时间补进新用户到用户名/邮箱过滤器（见UserExistenceFilter）
+CREATE INDEX idx_user_created_time ON user (created_time);
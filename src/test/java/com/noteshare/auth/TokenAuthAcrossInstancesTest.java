@@ -0,0 +1,170 @@
+package com.noteshare.auth;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.noteshare.NoteShareApplication;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// 两个应用实例共用同一个库和令牌密钥（相当于两台节点），在一个实例登录后另一个实例直接认可令牌；
+// 刷新令牌只能用一次，包括在两个实例上同时刷新
+class TokenAuthAcrossInstancesTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final HttpClient CLIENT = HttpClient.newHttpClient();
+
+    private static ConfigurableApplicationContext first;
+    private static ConfigurableApplicationContext second;
+
+    @BeforeAll
+    static void start(@TempDir Path dir) {
+        String url = "jdbc:h2:mem:auth-" + UUID.randomUUID()
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1";
+        first = start(url, dir.resolve("first"));
+        second = start(url, dir.resolve("second"));
+    }
+
+    private static ConfigurableApplicationContext start(String url, Path dir) {
+        return new SpringApplicationBuilder(NoteShareApplication.class)
+                .profiles("test")
+                .run("--server.port=0",
+                        "--spring.datasource.url=" + url,
+                        "--file.upload-dir=" + dir.resolve("uploads"),
+                        "--search.index-dir=" + dir.resolve("index"));
+    }
+
+    @AfterAll
+    static void stop() {
+        if (second != null) {
+            second.close();
+        }
+        if (first != null) {
+            first.close();
+        }
+    }
+
+    @Test
+    void loginOnOneInstanceIsAcceptedByTheOther() throws Exception {
+        JsonNode login = register(first, "alice");
+        String accessToken = login.path("accessToken").asText();
+
+        JsonNode check = get(second, "/api/auth/check", accessToken);
+        assertTrue(check.path("success").asBoolean());
+        assertEquals("alice", check.path("data").path("username").asText());
+        assertEquals(login.path("id").asLong(), check.path("data").path("id").asLong());
+
+        JsonNode myNotes = get(second, "/api/notes/my-notes", accessToken);
+        assertTrue(myNotes.path("success").asBoolean());
+    }
+
+    @Test
+    void refreshTokenRotatedOnOneInstanceIsRejectedByTheOther() throws Exception {
+        String refreshToken = register(first, "bob").path("refreshToken").asText();
+
+        JsonNode rotated = post(second, "/api/auth/refresh", "{\"refreshToken\":\"" + refreshToken + "\"}", null);
+        assertTrue(rotated.path("success").asBoolean());
+
+        JsonNode replayed = post(first, "/api/auth/refresh", "{\"refreshToken\":\"" + refreshToken + "\"}", null);
+        assertFalse(replayed.path("success").asBoolean());
+
+        String next = rotated.path("data").path("refreshToken").asText();
+        assertTrue(post(first, "/api/auth/refresh", "{\"refreshToken\":\"" + next + "\"}", null)
+                .path("success").asBoolean());
+    }
+
+    @Test
+    void concurrentRefreshesOfOneTokenSucceedOnce() throws Exception {
+        String body = "{\"refreshToken\":\"" + register(first, "carol").path("refreshToken").asText() + "\"}";
+        int attempts = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(attempts);
+        try {
+            CountDownLatch ready = new CountDownLatch(1);
+            List<Future<JsonNode>> results = new ArrayList<>();
+            for (int i = 0; i < attempts; i++) {
+                ConfigurableApplicationContext target = i % 2 == 0 ? first : second;
+                results.add(executor.submit(() -> {
+                    ready.await();
+                    return post(target, "/api/auth/refresh", body, null);
+                }));
+            }
+            ready.countDown();
+            int succeeded = 0;
+            for (Future<JsonNode> result : results) {
+                if (result.get().path("success").asBoolean()) {
+                    succeeded++;
+                }
+            }
+            assertEquals(1, succeeded);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void logoutOnOneInstanceReachesTheOtherAfterSync() throws Exception {
+        String accessToken = register(first, "dave").path("accessToken").asText();
+        assertTrue(get(second, "/api/auth/check", accessToken).path("success").asBoolean());
+
+        post(first, "/api/auth/logout", "{}", accessToken);
+        assertFalse(get(first, "/api/auth/check", accessToken).path("success").asBoolean());
+
+        second.getBean(TokenRevocationList.class).sync();
+        assertFalse(get(second, "/api/auth/check", accessToken).path("success").asBoolean());
+    }
+
+    private static JsonNode register(ConfigurableApplicationContext instance, String username) throws Exception {
+        JsonNode response = post(instance, "/api/auth/register", "{\"username\":\"" + username
+                + "\",\"password\":\"secret123\",\"confirmPassword\":\"secret123\",\"email\":\""
+                + username + "@example.com\"}", null);
+        assertTrue(response.path("success").asBoolean(), response.toString());
+        return response.path("data");
+    }
+
+    private static JsonNode get(ConfigurableApplicationContext instance, String path, String accessToken)
+            throws Exception {
+        return send(request(instance, path, accessToken).GET());
+    }
+
+    private static JsonNode post(ConfigurableApplicationContext instance, String path, String json,
+                                 String accessToken) throws Exception {
+        return send(request(instance, path, accessToken)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json)));
+    }
+
+    private static HttpRequest.Builder request(ConfigurableApplicationContext instance, String path,
+                                               String accessToken) {
+        String port = instance.getEnvironment().getProperty("local.server.port");
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path));
+        if (accessToken != null) {
+            builder.header("Authorization", "Bearer " + accessToken);
+        }
+        return builder;
+    }
+
+    private static JsonNode send(HttpRequest.Builder request) throws Exception {
+        HttpResponse<String> response = CLIENT.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        return MAPPER.readTree(response.body());
+    }
+}
@@ -0,0 +1,45 @@
+package com.noteshare.cache;
+
+import com.noteshare.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// 其他节点注册的用户（这里直接写库模拟）同步之后，本节点的可用性检查判定为已占用
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class UserExistenceFilterSyncTest {
+
+    @Autowired
+    private UserExistenceFilter userExistenceFilter;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void usersRegisteredElsewhereAreTakenAfterSync() {
+        String username = "elsewhere-" + UUID.randomUUID().toString().substring(0, 8);
+        String email = username + "@example.com";
+        jdbcTemplate.update("INSERT INTO user (username, password, email, created_time) VALUES (?, 'x', ?, ?)",
+                username, email, Timestamp.valueOf(LocalDateTime.now()));
+        assertFalse(userExistenceFilter.mightContainUsername(username));
+
+        userExistenceFilter.sync();
+        assertTrue(userExistenceFilter.mightContainUsername(username));
+        assertTrue(userExistenceFilter.mightContainEmail(email));
+        assertFalse(userService.isUsernameAvailable(username));
+        assertFalse(userService.isEmailAvailable(email));
+    }
+}
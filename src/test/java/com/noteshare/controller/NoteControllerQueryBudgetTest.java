@@ -0,0 +1,237 @@
+package com.noteshare.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.noteshare.entity.Course;
+import com.noteshare.entity.Note;
+import com.noteshare.entity.NoteStatus;
+import com.noteshare.metrics.QueryBudget;
+import com.noteshare.repository.CourseRepository;
+import com.noteshare.repository.NoteRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+// /api/notes各接口实际执行的SQL条数（JDBC层统计，含JdbcTemplate直接执行的语句）不超过@QueryBudget。
+// 都按最坏情况测：列表类接口缓存未命中，下载计数直写；每个标注了预算的接口都必须在这里测到
+@SpringBootTest(properties = "note.download-counter.write-behind=false")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class NoteControllerQueryBudgetTest {
+
+    // 打包下载按批查询，SQL条数随笔记数增长，不设预算
+    private static final Set<String> UNBUDGETED = Set.of("exportCourse", "exportNotes");
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    @Qualifier("requestMappingHandlerMapping")
+    private RequestMappingHandlerMapping handlerMapping;
+
+    private final Set<String> checked = new HashSet<>();
+
+    private Long courseId;
+    private String accessToken;
+
+    @BeforeAll
+    void setUp() throws Exception {
+        Course course = new Course();
+        course.setName("Linear Algebra");
+        course.setCode("MATH-" + System.nanoTime());
+        courseId = courseRepository.save(course).getId();
+
+        MvcResult login = mockMvc.perform(post("/api/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"budget\",\"password\":\"secret123\","
+                                + "\"confirmPassword\":\"secret123\",\"email\":\"budget@example.com\"}"))
+                .andReturn();
+        accessToken = json(login).path("data").path("accessToken").asText();
+    }
+
+    @AfterAll
+    void everyBudgetedEndpointIsChecked() {
+        for (Map.Entry<RequestMappingInfo, HandlerMethod> entry : handlerMapping.getHandlerMethods().entrySet()) {
+            HandlerMethod method = entry.getValue();
+            if (method.getBeanType() != NoteController.class || UNBUDGETED.contains(method.getMethod().getName())) {
+                continue;
+            }
+            assertNotNull(budgetOf(method), "接口缺少@QueryBudget: " + method);
+            assertTrue(checked.contains(method.getMethod().getName()), "接口未测SQL条数: " + method);
+        }
+    }
+
+    @Test
+    void uploadAndReadEndpoints() throws Exception {
+        long noteId = uploadReady("algebra basics");
+
+        JsonNode status = json(perform(get("/api/notes/" + noteId + "/status")));
+        assertEquals("READY", status.path("data").path("status").asText());
+
+        assertSuccess(perform(get("/api/notes/list").param("size", "5")));
+        assertSuccess(perform(get("/api/notes/course/" + courseId).param("size", "5")));
+        assertSuccess(perform(authorized(get("/api/notes/my-notes").param("size", "5"))));
+        assertSuccess(perform(get("/api/notes/search").param("q", "algebra")));
+        assertSuccess(perform(get("/api/notes/trending")));
+
+        JsonNode reset = json(perform(get("/api/notes/sync")));
+        assertTrue(reset.path("data").path("reset").asBoolean());
+        assertSuccess(perform(get("/api/notes/sync").param("token", reset.path("data").path("token").asText())));
+
+        assertEquals(200, perform(get("/api/notes/" + noteId + "/download")).getResponse().getStatus());
+        assertEquals(200, perform(get("/api/notes/" + noteId + "/preview")).getResponse().getStatus());
+
+        assertTrue(perform(get("/api/notes/feed").accept(MediaType.TEXT_EVENT_STREAM)).getRequest().isAsyncStarted());
+    }
+
+    @Test
+    void batchUploadAndDeleteEndpoints() throws Exception {
+        MvcResult batch = perform(authorized(multipart("/api/notes/upload/batch")
+                .file(new MockMultipartFile("files", "a.pdf", "application/pdf", pdf("batch a")))
+                .file(new MockMultipartFile("files", "b.pdf", "application/pdf", pdf("batch b")))
+                .param("courseId", String.valueOf(courseId))));
+        assertSuccess(batch);
+
+        long single = uploadReady("to delete");
+        long first = json(batch).path("data").get(0).path("id").asLong();
+        long second = json(batch).path("data").get(1).path("id").asLong();
+        awaitReady(first);
+        awaitReady(second);
+
+        assertSuccess(perform(authorized(delete("/api/notes/" + single))));
+        assertSuccess(perform(authorized(post("/api/notes/batch-delete")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"ids\":[" + first + "," + second + "]}"))));
+    }
+
+    private long uploadReady(String title) throws Exception {
+        MvcResult upload = perform(authorized(multipart("/api/notes/upload")
+                .file(new MockMultipartFile("file", title + ".pdf", "application/pdf", pdf(title)))
+                .param("title", title)
+                .param("description", "notes on " + title)
+                .param("courseId", String.valueOf(courseId))));
+        assertSuccess(upload);
+        long noteId = json(upload).path("data").asLong();
+        awaitReady(noteId);
+        return noteId;
+    }
+
+    private void awaitReady(long noteId) throws InterruptedException {
+        for (int i = 0; i < 200; i++) {
+            Note note = noteRepository.findById(noteId).orElse(null);
+            if (note != null && note.getStatus() == NoteStatus.READY) {
+                return;
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("笔记未处理完成: " + noteId);
+    }
+
+    // 执行请求，并检查这次请求的SQL条数不超过处理它的接口的预算
+    private MvcResult perform(MockHttpServletRequestBuilder request) throws Exception {
+        Map<String, Double> before = queryTotals();
+        MvcResult result = mockMvc.perform(request).andReturn();
+        HandlerMethod handler = (HandlerMethod) result.getHandler();
+        QueryBudget budget = budgetOf(handler);
+        assertNotNull(budget, "接口缺少@QueryBudget: " + handler);
+
+        Map<String, Double> after = queryTotals();
+        double queries = 0;
+        for (Map.Entry<String, Double> entry : after.entrySet()) {
+            queries += entry.getValue() - before.getOrDefault(entry.getKey(), 0.0);
+        }
+        assertTrue(queries <= budget.value(), String.format("%s 执行了%.0f条SQL，预算%d条",
+                handler.getMethod().getName(), queries, budget.value()));
+        checked.add(handler.getMethod().getName());
+        return result;
+    }
+
+    private Map<String, Double> queryTotals() {
+        Map<String, Double> totals = new HashMap<>();
+        for (DistributionSummary summary : meterRegistry.find("http.server.requests.queries").summaries()) {
+            totals.put(summary.getId().getTag("method") + " " + summary.getId().getTag("uri"), summary.totalAmount());
+        }
+        return totals;
+    }
+
+    private static QueryBudget budgetOf(HandlerMethod method) {
+        return AnnotatedElementUtils.findMergedAnnotation(method.getMethod(), QueryBudget.class);
+    }
+
+    private MockHttpServletRequestBuilder authorized(MockHttpServletRequestBuilder request) {
+        return request.header("Authorization", "Bearer " + accessToken);
+    }
+
+    private static void assertSuccess(MvcResult result) throws Exception {
+        JsonNode body = json(result);
+        assertTrue(body.path("success").asBoolean(), body.toString());
+    }
+
+    private static JsonNode json(MvcResult result) throws Exception {
+        return MAPPER.readTree(result.getResponse().getContentAsByteArray());
+    }
+
+    private static byte[] pdf(String text) throws IOException {
+        try (PDDocument document = new PDDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            PDPage page = new PDPage();
+            document.addPage(page);
+            try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                content.beginText();
+                content.setFont(PDType1Font.HELVETICA, 12);
+                content.newLineAtOffset(72, 720);
+                content.showText(text);
+                content.endText();
+            }
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+}
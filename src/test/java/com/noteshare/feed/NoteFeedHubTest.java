@@ -0,0 +1,100 @@
+package com.noteshare.feed;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// 卡住的写入多于sendThreads个时，超出的只断开不补线程；补的线程在写入返回后全部撤掉，之后的卡顿照常顶替
+class NoteFeedHubTest {
+
+    private static final int SEND_THREADS = 2;
+
+    private NoteFeedHub hub;
+
+    @BeforeEach
+    void createHub() {
+        hub = new NoteFeedHub();
+        ReflectionTestUtils.setField(hub, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(hub, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(hub, "maxConnections", 100);
+        ReflectionTestUtils.setField(hub, "maxPending", 64);
+        ReflectionTestUtils.setField(hub, "heartbeatMillis", Long.MAX_VALUE);
+        ReflectionTestUtils.setField(hub, "timeoutMillis", 60_000L);
+        ReflectionTestUtils.setField(hub, "sendThreads", SEND_THREADS);
+        ReflectionTestUtils.setField(hub, "sendTimeoutMillis", 0L);
+        ReflectionTestUtils.setField(hub, "lastHeartbeat", System.currentTimeMillis());
+        hub.init();
+    }
+
+    @AfterEach
+    void shutdown() {
+        hub.shutdown();
+    }
+
+    @Test
+    void stallsBeyondSendThreadsDoNotLeakCover() throws Exception {
+        for (int round = 0; round < 2; round++) {
+            List<Object> sends = stallSubscribers(SEND_THREADS * 3);
+            hub.dispatch();
+            assertEquals(SEND_THREADS, extraSenders().get());
+            assertEquals(SEND_THREADS * 2, senders().getCorePoolSize());
+
+            for (Object send : sends) {
+                ReflectionTestUtils.invokeMethod(send, "finish");
+            }
+            assertEquals(0, extraSenders().get());
+            assertEquals(SEND_THREADS, senders().getCorePoolSize());
+        }
+    }
+
+    // 新建count个订阅者，等发完连接帧后给每个挂上一次已超时的写入
+    private List<Object> stallSubscribers(int count) throws Exception {
+        long completed = senders().getCompletedTaskCount();
+        for (int i = 0; i < count; i++) {
+            hub.subscribe(null);
+        }
+        while (senders().getCompletedTaskCount() < completed + count) {
+            Thread.sleep(5);
+        }
+
+        Constructor<?> newSend = Class.forName(NoteFeedHub.class.getName() + "$Send")
+                .getDeclaredConstructor(NoteFeedHub.class);
+        newSend.setAccessible(true);
+        List<Object> sends = new ArrayList<>();
+        for (Set<?> scoped : subscribers().values()) {
+            for (Object subscriber : scoped) {
+                Object send = newSend.newInstance(hub);
+                ReflectionTestUtils.setField(subscriber, "current", send);
+                sends.add(send);
+            }
+        }
+        Thread.sleep(5);
+        return sends;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Long, Set<?>> subscribers() {
+        return (Map<Long, Set<?>>) ReflectionTestUtils.getField(hub, "subscribers");
+    }
+
+    private AtomicInteger extraSenders() {
+        return (AtomicInteger) ReflectionTestUtils.getField(hub, "extraSenders");
+    }
+
+    private ThreadPoolExecutor senders() {
+        return (ThreadPoolExecutor) ReflectionTestUtils.getField(hub, "senders");
+    }
+}
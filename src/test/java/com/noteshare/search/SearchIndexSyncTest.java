@@ -0,0 +1,65 @@
+package com.noteshare.search;
+
+import com.noteshare.service.NoteService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// 其他节点（这里直接写库模拟）上传和删除的笔记按变更日志同步进本节点索引；
+// 同步之前已删除的笔记不出现在检索结果里；页码过大时返回空页
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class SearchIndexSyncTest {
+
+    @Autowired
+    private SearchIndexSync searchIndexSync;
+
+    @Autowired
+    private NoteSearchService noteSearchService;
+
+    @Autowired
+    private NoteService noteService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void changesFromOtherNodesReachTheIndex() {
+        String tag = "sync" + UUID.randomUUID().toString().substring(0, 8);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Timestamp visible = Timestamp.valueOf(LocalDateTime.now().minusMinutes(1));
+        jdbcTemplate.update("INSERT INTO course (name, code, created_time) VALUES (?, ?, ?)", "Sync", tag, now);
+        jdbcTemplate.update("INSERT INTO user (username, password, email, created_time) VALUES (?, ?, ?, ?)",
+                tag, "x", tag + "@example.com", now);
+        Long courseId = jdbcTemplate.queryForObject("SELECT id FROM course WHERE code = ?", Long.class, tag);
+        Long userId = jdbcTemplate.queryForObject("SELECT id FROM user WHERE username = ?", Long.class, tag);
+        jdbcTemplate.update("INSERT INTO note (title, file_name, file_path, file_size, file_type, course_id, user_id, "
+                        + "download_count, created_time, status) VALUES (?, 'a.jpg', 'a.jpg', 1, 'jpg', ?, ?, 0, ?, 'READY')",
+                tag, courseId, userId, now);
+        Long noteId = jdbcTemplate.queryForObject("SELECT id FROM note WHERE title = ?", Long.class, tag);
+
+        jdbcTemplate.update("INSERT INTO note_change (note_id, course_id, type, changed_time) VALUES (?, ?, 'UPSERT', ?)",
+                noteId, courseId, visible);
+        searchIndexSync.sync();
+        assertEquals(1, noteSearchService.search(tag, null, null, 0, 10).getTotal());
+        assertEquals(1, noteService.searchNotes(tag, null, null, 0, 10).getItems().size());
+        assertTrue(noteService.searchNotes(tag, null, null, Integer.MAX_VALUE, 10).getItems().isEmpty());
+
+        jdbcTemplate.update("DELETE FROM note WHERE id = ?", noteId);
+        assertTrue(noteService.searchNotes(tag, null, null, 0, 10).getItems().isEmpty());
+
+        jdbcTemplate.update("INSERT INTO note_change (note_id, course_id, type, changed_time) VALUES (?, ?, 'DELETE', ?)",
+                noteId, courseId, visible);
+        searchIndexSync.sync();
+        assertEquals(0, noteSearchService.search(tag, null, null, 0, 10).getTotal());
+    }
+}
@@ -0,0 +1,141 @@
+package com.noteshare.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// 并发下载与并发写回（定时写回、阈值触发的写回和手动写回同时进行）之后，数据库里的计数一个不多一个不少；
+// 空闲计数器随写回移除，移除之后的下载照常计数
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "note.download-counter.write-behind=true",
+        "note.download-counter.flush-threshold=50",
+        "note.download-counter.flush-interval-ms=20"})
+@ActiveProfiles("test")
+class DownloadCounterServiceConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int ITERATIONS = 5000;
+    private static final int HOT_NOTES = 3;
+    private static final int SPARSE_NOTES = 40;
+
+    @Autowired
+    private DownloadCounterService downloadCounterService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private List<Long> noteIds;
+
+    @BeforeEach
+    void createNotes() {
+        String tag = UUID.randomUUID().toString().substring(0, 8);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.update("INSERT INTO course (name, code, created_time) VALUES (?, ?, ?)", "Counters", tag, now);
+        jdbcTemplate.update("INSERT INTO user (username, password, email, created_time) VALUES (?, ?, ?, ?)",
+                "counter-" + tag, "x", tag + "@example.com", now);
+        Long courseId = jdbcTemplate.queryForObject("SELECT id FROM course WHERE code = ?", Long.class, tag);
+        Long userId = jdbcTemplate.queryForObject("SELECT id FROM user WHERE email = ?", Long.class, tag + "@example.com");
+
+        noteIds = new ArrayList<>();
+        for (int i = 0; i < HOT_NOTES + SPARSE_NOTES; i++) {
+            String title = tag + "-" + i;
+            jdbcTemplate.update("INSERT INTO note (title, file_name, file_path, file_size, file_type, course_id, user_id, "
+                            + "download_count, created_time, status) VALUES (?, 'a.pdf', 'a.pdf', 1, 'pdf', ?, ?, 0, ?, 'READY')",
+                    title, courseId, userId, now);
+            noteIds.add(jdbcTemplate.queryForObject("SELECT id FROM note WHERE title = ?", Long.class, title));
+        }
+    }
+
+    @Test
+    void concurrentDownloadsAndFlushesCountExactly() throws Exception {
+        // 前几条是热门笔记；其余每条偶尔才有下载，计数器会在两次下载之间被移除又重建
+        AtomicLongArray expected = new AtomicLongArray(noteIds.size());
+        AtomicBoolean downloading = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> downloads = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                downloads.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < ITERATIONS; i++) {
+                        if (i % 2 == 0) {
+                            int n = HOT_NOTES + (i / 2) % SPARSE_NOTES;
+                            downloadCounterService.increment(noteIds.get(n));
+                            expected.incrementAndGet(n);
+                        } else if (i % 10 == 1) {
+                            downloadCounterService.incrementAll(noteIds.subList(0, HOT_NOTES));
+                            for (int n = 0; n < HOT_NOTES; n++) {
+                                expected.incrementAndGet(n);
+                            }
+                        } else {
+                            downloadCounterService.increment(noteIds.get(i % HOT_NOTES));
+                            expected.incrementAndGet(i % HOT_NOTES);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            Future<?> flusher = executor.submit(() -> {
+                start.await();
+                while (downloading.get()) {
+                    downloadCounterService.flush();
+                }
+                return null;
+            });
+
+            start.countDown();
+            for (Future<?> download : downloads) {
+                download.get(60, TimeUnit.SECONDS);
+            }
+            downloading.set(false);
+            flusher.get(60, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        downloadCounterService.flush();
+        for (int n = 0; n < noteIds.size(); n++) {
+            assertEquals(expected.get(n), downloadCount(noteIds.get(n)), "笔记" + n + "的下载次数");
+        }
+
+        // 写回之后又空闲了一轮的计数器被移除
+        downloadCounterService.flush();
+        assertTrue(counters().keySet().stream().noneMatch(noteIds::contains));
+
+        Long sparse = noteIds.get(HOT_NOTES);
+        downloadCounterService.increment(sparse);
+        downloadCounterService.flush();
+        assertEquals(expected.get(HOT_NOTES) + 1, downloadCount(sparse));
+    }
+
+    private long downloadCount(Long noteId) {
+        return jdbcTemplate.queryForObject("SELECT download_count FROM note WHERE id = ?", Long.class, noteId);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Long, ?> counters() {
+        return (Map<Long, ?>) ReflectionTestUtils.getField(downloadCounterService, "counters");
+    }
+}
@@ -0,0 +1,60 @@
+package com.noteshare.service;
+
+import com.noteshare.NoteShareApplication;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// 停机时最后一次写回的计数落库，写回事件的监听者（同步日志等）也都收到
+class DownloadCounterShutdownTest {
+
+    @Test
+    void lastFlushOnShutdownReachesListeners(@TempDir Path dir) {
+        String url = "jdbc:h2:mem:shutdown-" + UUID.randomUUID()
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1";
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(NoteShareApplication.class)
+                .profiles("test")
+                .run("--server.port=0",
+                        "--spring.datasource.url=" + url,
+                        "--file.upload-dir=" + dir.resolve("uploads"),
+                        "--search.index-dir=" + dir.resolve("index"),
+                        "--note.download-counter.write-behind=true",
+                        "--note.download-counter.flush-interval-ms=3600000");
+
+        Long noteId;
+        try {
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            jdbcTemplate.update("INSERT INTO course (name, code, created_time) VALUES ('Shutdown', 'SD-1', ?)", now);
+            jdbcTemplate.update("INSERT INTO user (username, password, email, created_time) "
+                    + "VALUES ('shutdown', 'x', 'shutdown@example.com', ?)", now);
+            jdbcTemplate.update("INSERT INTO note (title, file_name, file_path, file_size, file_type, course_id, user_id, "
+                    + "download_count, created_time, status) SELECT 'shutdown', 'a.pdf', 'a.pdf', 1, 'pdf', c.id, u.id, "
+                    + "0, ?, 'READY' FROM course c, user u", now);
+            noteId = jdbcTemplate.queryForObject("SELECT id FROM note", Long.class);
+
+            DownloadCounterService counters = context.getBean(DownloadCounterService.class);
+            for (int i = 0; i < 3; i++) {
+                counters.increment(noteId);
+            }
+        } finally {
+            context.close();
+        }
+
+        JdbcTemplate db = new JdbcTemplate(new DriverManagerDataSource(url, "sa", ""));
+        assertEquals(3, db.queryForObject("SELECT download_count FROM note WHERE id = ?", Integer.class, noteId));
+        assertEquals(1, db.queryForObject("SELECT COUNT(*) FROM note_change WHERE note_id = ? AND type = 'UPSERT'",
+                Integer.class, noteId));
+        db.execute("SHUTDOWN");
+    }
+}
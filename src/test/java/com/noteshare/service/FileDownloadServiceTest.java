@@ -0,0 +1,75 @@
+package com.noteshare.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// 多区间请求：重复区间总长超过文件长度时返回416，重叠的区间合并，乱序的按起点排序
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class FileDownloadServiceTest {
+
+    private static final int LENGTH = 100;
+
+    @Autowired
+    private FileDownloadService fileDownloadService;
+
+    @TempDir
+    Path dir;
+
+    private Path file;
+
+    @BeforeEach
+    void createFile() throws Exception {
+        file = dir.resolve("a.txt");
+        Files.write(file, "0123456789".repeat(LENGTH / 10).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void repeatedRangesAreNotSatisfiable() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertFalse(send("bytes=0-,0-,0-", response));
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */" + LENGTH, response.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void overlappingRangesAreMerged() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertTrue(send("bytes=5-19,0-9", response));
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 0-19/" + LENGTH, response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals("01234567890123456789", response.getContentAsString());
+    }
+
+    @Test
+    void disjointRangesAreSentInOrder() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertFalse(send("bytes=50-52,10-12", response));
+        assertEquals(206, response.getStatus());
+        String body = response.getContentAsString();
+        int first = body.indexOf("bytes 10-12/" + LENGTH);
+        int second = body.indexOf("bytes 50-52/" + LENGTH);
+        assertTrue(first >= 0 && second > first, body);
+    }
+
+    private boolean send(String range, MockHttpServletResponse response) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/notes/1/download");
+        request.addHeader(HttpHeaders.RANGE, range);
+        return fileDownloadService.send(file, null, "a.txt", "txt", request, response);
+    }
+}
@@ -0,0 +1,102 @@
+package com.noteshare.service;
+
+import com.noteshare.entity.Course;
+import com.noteshare.entity.Note;
+import com.noteshare.entity.User;
+import com.noteshare.repository.CourseRepository;
+import com.noteshare.repository.NoteChangeRepository;
+import com.noteshare.repository.NoteRepository;
+import com.noteshare.repository.UserRepository;
+import com.noteshare.storage.StorageBackend;
+import com.noteshare.storage.StoredBlob;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.reset;
+
+// 删除墓碑写入失败时删除整体回滚，笔记和文件都还在；成功时行和墓碑同时落库
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class NoteServiceDeleteTest {
+
+    @Autowired
+    private NoteService noteService;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @SpyBean
+    private NoteChangeRepository noteChangeRepository;
+
+    @Test
+    void deleteRollsBackWhenTombstoneFails() throws Exception {
+        Note note = readyNote();
+        String key = noteRepository.findById(note.getId()).orElseThrow().getStorageKey();
+
+        doThrow(new DataAccessResourceFailureException("tombstone")).when(noteChangeRepository).recordDeletes(any(), any());
+        try {
+            assertThrows(DataAccessResourceFailureException.class,
+                    () -> noteService.deleteNote(noteRepository.findById(note.getId()).orElseThrow()));
+        } finally {
+            reset(noteChangeRepository);
+        }
+        assertTrue(noteRepository.existsById(note.getId()));
+        assertTrue(storageBackend.exists(key));
+
+        noteService.deleteNote(noteRepository.findById(note.getId()).orElseThrow());
+        assertFalse(noteRepository.existsById(note.getId()));
+        assertFalse(storageBackend.exists(key));
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM note_change WHERE note_id = ? AND type = 'DELETE'", Integer.class, note.getId()));
+    }
+
+    private Note readyNote() throws Exception {
+        String tag = UUID.randomUUID().toString().substring(0, 8);
+        Course course = new Course();
+        course.setName("Deletes");
+        course.setCode(tag);
+        Long courseId = courseRepository.save(course).getId();
+        User user = new User();
+        user.setUsername("delete-" + tag);
+        user.setPassword("x");
+        user.setEmail(tag + "@example.com");
+        Long userId = userRepository.save(user).getId();
+
+        MockMultipartFile file = new MockMultipartFile("file", "a.pdf", "application/pdf",
+                "%PDF-1.4 test".getBytes(StandardCharsets.US_ASCII));
+        Note note = noteService.receiveUpload("delete", null, courseId, file, userId);
+        StoredBlob blob = storageBackend.store(new ByteArrayInputStream(
+                ("content " + tag).getBytes(StandardCharsets.UTF_8)));
+        noteService.completeUpload(note.getId(), blob, null, Paths.get(note.getFilePath()));
+        return note;
+    }
+}
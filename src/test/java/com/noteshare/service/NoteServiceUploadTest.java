@@ -0,0 +1,126 @@
+package com.noteshare.service;
+
+import com.noteshare.entity.Course;
+import com.noteshare.entity.Note;
+import com.noteshare.entity.NoteStatus;
+import com.noteshare.entity.User;
+import com.noteshare.repository.CourseRepository;
+import com.noteshare.repository.NoteRepository;
+import com.noteshare.repository.UserRepository;
+import com.noteshare.storage.StorageBackend;
+import com.noteshare.storage.StoredBlob;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// 上传处理期间笔记被删除或已判定失败：后台线程完成时不会把笔记重新写入，已存的文件和预览图被回收；
+// 删除PENDING笔记不会删掉后台线程还在读的临时文件
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class NoteServiceUploadTest {
+
+    @Autowired
+    private NoteService noteService;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    private Long courseId;
+    private Long userId;
+
+    @BeforeEach
+    void createOwner() {
+        String tag = UUID.randomUUID().toString().substring(0, 8);
+        Course course = new Course();
+        course.setName("Uploads");
+        course.setCode(tag);
+        courseId = courseRepository.save(course).getId();
+        User user = new User();
+        user.setUsername("upload-" + tag);
+        user.setPassword("x");
+        user.setEmail(tag + "@example.com");
+        userId = userRepository.save(user).getId();
+    }
+
+    @Test
+    void noteDeletedWhileProcessingIsNotReinserted() throws Exception {
+        Note note = receive();
+        Path tempFile = Paths.get(note.getFilePath());
+        StoredBlob blob = store("content " + UUID.randomUUID());
+        StoredBlob preview = store("preview " + UUID.randomUUID());
+
+        noteService.deleteNote(noteRepository.findById(note.getId()).orElseThrow());
+        assertTrue(Files.exists(tempFile), "后台线程还在读的临时文件不应被删除");
+
+        noteService.completeUpload(note.getId(), blob, preview, tempFile);
+        assertFalse(noteRepository.existsById(note.getId()));
+        assertFalse(storageBackend.exists(blob.getKey()));
+        assertFalse(storageBackend.exists(preview.getKey()));
+        Files.deleteIfExists(tempFile);
+    }
+
+    @Test
+    void failedUploadStaysFailed() throws Exception {
+        Note note = receive();
+        Path tempFile = Paths.get(note.getFilePath());
+        StoredBlob blob = store("content " + UUID.randomUUID());
+
+        noteService.failUpload(note.getId(), "处理超时，请重新上传");
+        noteService.completeUpload(note.getId(), blob, null, tempFile);
+
+        assertEquals(NoteStatus.FAILED, noteRepository.findById(note.getId()).orElseThrow().getStatus());
+        assertFalse(storageBackend.exists(blob.getKey()));
+        Files.deleteIfExists(tempFile);
+    }
+
+    @Test
+    void completedUploadIsNotFailedAfterwards() throws Exception {
+        Note note = receive();
+        Path tempFile = Paths.get(note.getFilePath());
+        StoredBlob blob = store("content " + UUID.randomUUID());
+
+        noteService.completeUpload(note.getId(), blob, null, tempFile);
+        noteService.failUpload(note.getId(), "文件处理失败");
+        noteService.discardBlobs(blob, null);
+
+        Note ready = noteRepository.findById(note.getId()).orElseThrow();
+        assertEquals(NoteStatus.READY, ready.getStatus());
+        assertEquals(blob.getKey(), ready.getStorageKey());
+        assertTrue(storageBackend.exists(blob.getKey()));
+        assertTrue(noteService.isLocalUpload(note));
+        Files.deleteIfExists(tempFile);
+    }
+
+    private Note receive() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "a.pdf", "application/pdf",
+                "%PDF-1.4 test".getBytes(StandardCharsets.US_ASCII));
+        return noteService.receiveUpload("upload", null, courseId, file, userId);
+    }
+
+    private StoredBlob store(String content) throws Exception {
+        return storageBackend.store(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+    }
+}
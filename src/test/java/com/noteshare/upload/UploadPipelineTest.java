@@ -0,0 +1,115 @@
+package com.noteshare.upload;
+
+import com.noteshare.dto.BatchItemResult;
+import com.noteshare.entity.Course;
+import com.noteshare.entity.Note;
+import com.noteshare.entity.NoteStatus;
+import com.noteshare.entity.User;
+import com.noteshare.repository.CourseRepository;
+import com.noteshare.repository.NoteRepository;
+import com.noteshare.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// 线程池拒绝任务（节点停机中）时，已按PENDING入库的笔记立即标记失败，临时文件删除，许可归还；
+// 批量上传逐个返回失败结果
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class UploadPipelineTest {
+
+    @Autowired
+    private UploadPipeline uploadPipeline;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private String tag;
+    private Long courseId;
+    private Long userId;
+
+    @BeforeEach
+    void createOwner() {
+        tag = UUID.randomUUID().toString().substring(0, 8);
+        Course course = new Course();
+        course.setName("Pipeline");
+        course.setCode(tag);
+        courseId = courseRepository.save(course).getId();
+        User user = new User();
+        user.setUsername("pipeline-" + tag);
+        user.setPassword("x");
+        user.setEmail(tag + "@example.com");
+        userId = userRepository.save(user).getId();
+    }
+
+    @Test
+    void rejectedUploadIsFailedAndCleanedUp() throws Exception {
+        int permits = slots().availablePermits();
+        uploadPipeline.shutdown();
+
+        assertThrows(UploadRejectedException.class,
+                () -> uploadPipeline.accept(tag, null, courseId, pdf("a.pdf"), userId));
+
+        assertFailedAndCleanedUp(single());
+        assertEquals(permits, slots().availablePermits());
+    }
+
+    @Test
+    void rejectedBatchItemsAreFailedAndCleanedUp() throws Exception {
+        int permits = slots().availablePermits();
+        uploadPipeline.shutdown();
+
+        List<BatchItemResult> results = uploadPipeline.acceptBatch(List.of(tag + "-a", tag + "-b"), null, courseId,
+                List.of(pdf("a.pdf"), pdf("b.pdf")), userId);
+
+        assertEquals(2, results.size());
+        for (BatchItemResult result : results) {
+            assertFalse(result.isSuccess());
+            assertFailedAndCleanedUp(noteRepository.findById(result.getId()).orElseThrow());
+        }
+        assertEquals(permits, slots().availablePermits());
+    }
+
+    private Note single() {
+        List<Note> notes = noteRepository.findByTitleContainingIgnoreCaseOrderByCreatedTimeDesc(tag);
+        assertEquals(1, notes.size());
+        return notes.get(0);
+    }
+
+    private void assertFailedAndCleanedUp(Note note) {
+        assertEquals(NoteStatus.FAILED, note.getStatus());
+        assertFalse(Files.exists(Paths.get(note.getFilePath())), "临时文件应已删除");
+    }
+
+    private Semaphore slots() {
+        return (Semaphore) ReflectionTestUtils.getField(uploadPipeline, "slots");
+    }
+
+    private static MockMultipartFile pdf(String name) {
+        return new MockMultipartFile("file", name, "application/pdf",
+                "%PDF-1.4 test".getBytes(StandardCharsets.US_ASCII));
+    }
+}